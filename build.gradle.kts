@@ -75,6 +75,7 @@ loom {
     runConfigs.all {
         ideConfigGenerated(true)
         runDir = "../../server"
+        if (javaVersion == JavaVersion.VERSION_21) vmArg("--add-modules=jdk.incubator.vector")
     }
 }
 
@@ -84,6 +85,13 @@ java {
     sourceCompatibility = javaVersion
 }
 
+tasks.withType<JavaCompile>().configureEach {
+    //SIMD similarity kernel (me.sailex.ai.npc.embedding.VectorSimilarityKernel)
+    //javac always warns "using incubating module(s): jdk.incubator.vector", that warning is expected.
+    //it has no own -Xlint key, only -Xlint:none or -nowarn would hide it (and all other warnings)
+    if (javaVersion == JavaVersion.VERSION_21) options.compilerArgs.add("--add-modules=jdk.incubator.vector")
+}
+
 kotlin {
     compilerOptions {
         jvmTarget = if (stonecutter.eval(mcVersion, ">=1.20.6")) JvmTarget.JVM_21 else JvmTarget.JVM_17
@@ -4,37 +4,64 @@ import baritone.api.IBaritone;
 import baritone.api.command.exception.CommandException;
 import baritone.api.pathing.goals.GoalBlock;
 import baritone.api.utils.BetterBlockPos;
+import me.sailex.ai.npc.action.ActionQueue;
+import me.sailex.ai.npc.action.ActionResult;
+import me.sailex.ai.npc.action.ActionType;
+import me.sailex.ai.npc.action.BaritoneActionListener;
+import me.sailex.ai.npc.action.MiningJob;
+import me.sailex.ai.npc.action.NPCAction;
+import me.sailex.ai.npc.context.ServerQueryBridge;
 import me.sailex.ai.npc.model.context.WorldContext;
+import me.sailex.ai.npc.tick.DetailLevel;
+import me.sailex.ai.npc.tick.DetailLevelResolver;
+import me.sailex.ai.npc.tick.ITickTask;
+import me.sailex.ai.npc.tick.NPCTickScheduler;
 import me.sailex.ai.npc.util.LogUtil;
 import me.sailex.ai.npc.util.WorldUtil;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
 
-import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.minecraft.command.argument.EntityAnchorArgumentType;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.network.message.MessageType;
 import net.minecraft.network.message.SignedMessage;
 import net.minecraft.recipe.RecipeEntry;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
 
 /**
  * Controller of a npc player.
  * Queues and executes actions (npc capabilities) added by
- * {@link me.sailex.ai.npc.llm.function_calling.OpenAiFunctionManager} or {@link me.sailex.ai.npc.llm.function_calling.OllamaFunctionManager}
+ * {@link me.sailex.ai.npc.llm.function_calling.OpenAiFunctionManager} or {@link me.sailex.ai.npc.llm.function_calling.OllamaFunctionManager}.
+ * One action runs at a time, an action with a higher priority interrupts the running action.
+ * Long running actions are finished by the signals of the {@link BaritoneActionListener}.
  *
  * @author sailex
  */
 public class NPCController {
 
-	private final BlockingQueue<Runnable> actionQueue = new LinkedBlockingQueue<>();
+	private final ActionQueue actionQueue = new ActionQueue();
+
+	//ticks between the npc looks at the closest player
+	private static final int LOOK_AT_PLAYER_PERIOD = 4;
+	//ticks between the detail level of the npc is resolved
+	private static final int DETAIL_LEVEL_UPDATE_PERIOD = 20;
 
 	private final ServerPlayerEntity npcEntity;
 	private final IBaritone baritone;
+	private final BaritoneActionListener baritoneListener;
+	private final ITickTask actionTask = this::tickActions;
+	private final ITickTask lookAtPlayerTask = server -> tickLookAtPlayer();
 
 	private boolean isFirstRequest = true;
+	//only changed on the server thread
+	private volatile NPCAction currentAction;
+	private DetailLevel detailLevel = DetailLevel.FULL;
+	private int nextDetailLevelUpdate;
+	private int lastActionTick;
 
 	public NPCController(
 		ServerPlayerEntity npcEntity,
@@ -42,21 +69,48 @@ public class NPCController {
 	) {
 		this.npcEntity = npcEntity;
 		this.baritone = baritone;
-		tick();
+		this.baritoneListener = BaritoneActionListener.register(baritone, npcEntity);
+		NPCTickScheduler.schedule(actionTask);
+		NPCTickScheduler.schedule(lookAtPlayerTask, LOOK_AT_PLAYER_PERIOD);
 	}
 
 	/**
-	 * Adds an action to the Queue
+	 * Adds an action to the queue. A move to the target of the running move isn't queued again.
 	 *
-	 * @param action 		action (npc capability)
-	 * @param isNonBlocking	whether action should be executed directly
+	 * @param action action (npc capability)
+	 * @return future completed with the outcome once the action finished
 	 */
-	public void addAction(Runnable action, boolean isNonBlocking) {
-		if (isNonBlocking) {
-			action.run();
-			return;
+	public CompletableFuture<ActionResult> addAction(NPCAction action) {
+		NPCAction runningAction = currentAction;
+		if (runningAction != null && action.getType() == ActionType.MOVE
+				&& runningAction.getType() == ActionType.MOVE
+				&& runningAction.getDescription().equals(action.getDescription())) {
+			return runningAction.getResult();
 		}
 		actionQueue.add(action);
+		return action.getResult();
+	}
+
+	/**
+	 * Describes the running action with its progress, e.g. the collected items of a mining job.
+	 *
+	 * @return the description or null if no action is running
+	 */
+	public String describeCurrentAction() {
+		return ServerQueryBridge.query(npcEntity.getServer(), () -> {
+			NPCAction action = currentAction;
+			return action != null ? action.describe() : null;
+		}).join();
+	}
+
+	/**
+	 * Cancels the running and all queued actions at the end of the current tick.
+	 */
+	public CompletableFuture<Void> stopActions() {
+		return ServerQueryBridge.query(npcEntity.getServer(), () -> {
+			cancelActions();
+			return null;
+		});
 	}
 
 	private void pollAction() {
@@ -64,8 +118,45 @@ public class NPCController {
 			cancelBaritone();
 			isFirstRequest = false;
 		}
-		Runnable nextAction = actionQueue.poll();
-		if (nextAction != null) nextAction.run();
+		NPCAction nextAction = actionQueue.poll();
+		if (nextAction != null) startAction(nextAction);
+	}
+
+	private void startAction(NPCAction action) {
+		try {
+			currentAction = action.start() ? action : null;
+			if (currentAction != null) baritoneListener.arm();
+		} catch (Exception e) {
+			currentAction = null;
+			action.getResult().completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Interrupts the running action if an action with a higher priority is queued,
+	 * otherwise finishes it if baritone signalled that it's idle again or stuck.
+	 */
+	private void updateCurrentAction() {
+		NPCAction preemptingAction = actionQueue.pollHigherPriority(currentAction.getPriority());
+		if (preemptingAction != null) {
+			baritoneListener.disarm();
+			cancelBaritone();
+			currentAction.cancel("interrupted by " + preemptingAction.getDescription());
+			currentAction = null;
+			startAction(preemptingAction);
+			return;
+		}
+		BaritoneActionListener.Signal signal = baritoneListener.pollSignal();
+		if (signal == null) return;
+		switch (signal) {
+			case FINISHED -> currentAction.finish();
+			case FAILED -> currentAction.fail(baritoneListener.getFailure());
+			case STUCK -> {
+				cancelBaritone();
+				currentAction.fail("got stuck for " + BaritoneActionListener.STUCK_TIMEOUT_TICKS / 20 + " seconds");
+			}
+		}
+		currentAction = null;
 	}
 
 	public void chat(String message) {
@@ -83,13 +174,39 @@ public class NPCController {
 		baritone.getBuilderProcess().clearArea(blockPos, blockPos);
 	}
 
-	public void attack(int entityId) {
+	/**
+	 * @return false if the entity doesn't exist
+	 */
+	public boolean attack(int entityId) {
 		Entity targetEntity = npcEntity.getWorld().getEntityById(entityId);
 		if (targetEntity != null) {
 			npcEntity.lookAt(EntityAnchorArgumentType.EntityAnchor.EYES, targetEntity.getEyePos());
 			baritone.getCommandHelper().executeAttack();
 			npcEntity.swingHand(npcEntity.getActiveHand());
+			return true;
 		}
+		return false;
+	}
+
+	/**
+	 * @return true if the npc stands at the position
+	 */
+	public boolean isAt(WorldContext.Position position) {
+		return npcEntity.getBlockPos().equals(new BlockPos(position.x(), position.y(), position.z()));
+	}
+
+	/**
+	 * @return true if the block at the position is air
+	 */
+	public boolean isMined(WorldContext.Position position) {
+		return npcEntity.getWorld().getBlockState(new BlockPos(position.x(), position.y(), position.z())).isAir();
+	}
+
+	/**
+	 * @return job that mines count blocks of the type, started by its action
+	 */
+	public MiningJob createMiningJob(String blockName, int count) {
+		return new MiningJob(baritone, npcEntity, blockName, count);
 	}
 
 	public void drop(int slot) {
@@ -117,15 +234,23 @@ public class NPCController {
 	}
 
 	private void lookAtPlayer() {
-		if (!actionQueue.isEmpty()) return;
+		if (currentAction != null || !actionQueue.isEmpty()) return;
 		PlayerEntity closestPlayer = WorldUtil.getClosestPlayer(npcEntity);
 		if (closestPlayer != null) {
 			npcEntity.lookAt(EntityAnchorArgumentType.EntityAnchor.EYES, closestPlayer.getEyePos());
 		}
 	}
 
+	/**
+	 * Cancels the running and all queued actions, must be called on the server thread.
+	 */
 	public void cancelActions() {
-		actionQueue.clear();
+		actionQueue.clear("all actions were stopped");
+		baritoneListener.disarm();
+		if (currentAction != null) {
+			currentAction.cancel("all actions were stopped");
+			currentAction = null;
+		}
 		cancelBaritone();
 	}
 
@@ -136,22 +261,62 @@ public class NPCController {
 	}
 
 	/**
-	 * Processes npc actions on game tick
+	 * Stops processing npc actions on game tick, cancels the running and all queued actions at the end of the current tick.
 	 */
-	public void tick() {
-		ServerTickEvents.END_SERVER_TICK.register(server -> {
-			autoRespawn();
-			if (!baritoneIsActive()) {
-				lookAtPlayer();
-				pollAction();
+	public CompletableFuture<Void> stop() {
+		return ServerQueryBridge.query(npcEntity.getServer(), () -> {
+			NPCTickScheduler.cancel(actionTask);
+			NPCTickScheduler.cancel(lookAtPlayerTask);
+			actionQueue.clear("the npc was removed");
+			baritoneListener.disarm();
+			if (currentAction != null) {
+				currentAction.cancel("the npc was removed");
+				currentAction = null;
 			}
+			cancelBaritone();
+			return null;
 		});
 	}
 
+	/**
+	 * Processes npc actions on game tick, at the rate of the detail level of the npc
+	 *
+	 * @return false if the npc was removed
+	 */
+	private boolean tickActions(MinecraftServer server) {
+		if (npcEntity.isRemoved()) return false;
+		int ticks = server.getTicks();
+		if (ticks - nextDetailLevelUpdate >= 0) {
+			detailLevel = DetailLevelResolver.resolve(npcEntity);
+			nextDetailLevelUpdate = ticks + DETAIL_LEVEL_UPDATE_PERIOD;
+		}
+		//offset by the entity id, so npcs at the same detail level don't tick in the same tick.
+		//a tick that was deferred by the scheduler budget past its slot runs in the next tick
+		int period = detailLevel.getPeriod();
+		boolean missedSlot = ticks - lastActionTick > period;
+		if (Math.floorMod(ticks + npcEntity.getId(), period) != 0 && !missedSlot) return true;
+		lastActionTick = ticks;
+		autoRespawn();
+		if (currentAction != null) {
+			updateCurrentAction();
+		}
+		//idle npcs only check the queue, baritone is only queried if an action is pending
+		if (currentAction == null && !actionQueue.isEmpty() && !baritoneIsActive()) {
+			pollAction();
+		}
+		return true;
+	}
+
+	private boolean tickLookAtPlayer() {
+		if (npcEntity.isRemoved()) return false;
+		if (detailLevel.isLookAtPlayer() && !npcEntity.isDead() && !baritoneIsActive()) {
+			lookAtPlayer();
+		}
+		return true;
+	}
+
 	private boolean baritoneIsActive() {
-		return baritone.getPathingBehavior().isPathing()
-				|| baritone.getCustomGoalProcess().isActive()
-				|| baritone.getMineProcess().isActive();
+		return BaritoneActionListener.isActive(baritone);
 	}
 
 	private void cancelBaritone() {
@@ -4,8 +4,14 @@ import baritone.api.BaritoneAPI
 import me.sailex.ai.npc.config.ModConfig
 import me.sailex.ai.npc.constant.ConfigConstants
 import me.sailex.ai.npc.constant.Instructions
+import me.sailex.ai.npc.context.BlockScanScheduler
+import me.sailex.ai.npc.context.ContextDiffer
+import me.sailex.ai.npc.context.format.ContextFormat
+import me.sailex.ai.npc.context.EntityTracker
 import me.sailex.ai.npc.database.repositories.RepositoryFactory
 import me.sailex.ai.npc.database.resources.ResourcesProvider
+import me.sailex.ai.npc.embedding.EmbeddingBatcher
+import me.sailex.ai.npc.embedding.EmbeddingCache
 import me.sailex.ai.npc.event.IEventHandler
 import me.sailex.ai.npc.event.NPCEventHandler
 import me.sailex.ai.npc.exception.NPCCreationException
@@ -25,18 +31,27 @@ class NPCFactory(
     private val repositoryFactory: RepositoryFactory
 ) {
     val nameToNpc = mutableMapOf<String, NPC>()
+    private val embeddingCache = EmbeddingCache(repositoryFactory.embeddingCacheRepository)
+    private val embeddingBatchSize =
+        config.getProperty(ConfigConstants.NPC_EMBEDDING_BATCH_SIZE).toIntOrNull() ?: DEFAULT_EMBEDDING_BATCH_SIZE
+    private val embeddingBatcher = EmbeddingBatcher(
+        config.getProperty(ConfigConstants.NPC_EMBEDDING_BATCH_WINDOW_MS).toLongOrNull() ?: DEFAULT_EMBEDDING_BATCH_WINDOW_MS,
+        embeddingBatchSize
+    )
     var resourcesProvider: ResourcesProvider? = null
         private set
 
     fun createNpc(
         server: MinecraftServer,
         npcEntity: ServerPlayerEntity,
-        llmType: String
+        llmType: String,
+        contextFormat: String? = null
     ) {
         val npcName = npcEntity.name.string
         checkNpcName(npcName)
 
-        val npc = createNpcInstance(server, npcEntity, npcName, llmType)
+        val format = ContextFormat.of(contextFormat ?: config.getProperty(ConfigConstants.NPC_CONTEXT_FORMAT))
+        val npc = createNpcInstance(server, npcEntity, npcName, llmType, format)
 
         handleInitMessage(npc.eventHandler, npc.entity.name.string)
 
@@ -48,6 +63,9 @@ class NPCFactory(
         if (npcToRemove != null) {
             npcToRemove.llmClient.stopService()
             npcToRemove.eventHandler.stopService()
+            npcToRemove.controller.stop()
+            BlockScanScheduler.untrack(npcToRemove.entity)
+            EntityTracker.untrack(npcToRemove.entity)
             nameToNpc.remove(npcName)
             return true
         }
@@ -71,23 +89,26 @@ class NPCFactory(
         server: MinecraftServer,
         npcEntity: ServerPlayerEntity,
         npcName: String,
-        llmType: String
+        llmType: String,
+        contextFormat: ContextFormat
     ): NPC {
         return when (llmType) {
             LLMType.OLLAMA.name -> {
                 val llmClient = initOllamaClient()
                 val (controller, history) = initBase(llmClient, server, npcEntity, npcName)
+                val contextDiffer = ContextDiffer(contextFormat.createFormatter())
                 val functionManager = OllamaFunctionManager(resourcesProvider!!, controller, npcEntity, history, llmClient)
-                val eventHandler = NPCEventHandler(llmClient, history, functionManager)
-                NPC(npcEntity, llmClient, history, eventHandler)
+                val eventHandler = NPCEventHandler(llmClient, history, functionManager, contextDiffer)
+                NPC(npcEntity, llmClient, history, eventHandler, controller)
             }
 
             LLMType.OPENAI.name -> {
                 val llmClient = initOpenAiClient()
                 val (controller, history) = initBase(llmClient, server, npcEntity, npcName)
+                val contextDiffer = ContextDiffer(contextFormat.createFormatter())
                 val functionManager = OpenAiFunctionManager(resourcesProvider!!, controller, npcEntity, history, llmClient)
-                val eventHandler = NPCEventHandler(llmClient, history, functionManager)
-                NPC(npcEntity, llmClient, history, eventHandler)
+                val eventHandler = NPCEventHandler(llmClient, history, functionManager, contextDiffer)
+                NPC(npcEntity, llmClient, history, eventHandler, controller)
             }
             else -> throw NPCCreationException("Invalid llm type: $llmType")
         }
@@ -113,12 +134,12 @@ class NPCFactory(
     private fun initOpenAiClient(): OpenAiClient {
         val apiKey = config.getProperty(ConfigConstants.NPC_LLM_OPENAI_API_KEY)
         val baseUrl = config.getProperty(ConfigConstants.NPC_LLM_OPENAI_BASE_URL)
-        return OpenAiClient(apiKey, baseUrl)
+        return OpenAiClient(apiKey, baseUrl, embeddingCache, embeddingBatcher)
     }
 
     private fun initOllamaClient(): OllamaClient {
         val ollamaUrl = config.getProperty(ConfigConstants.NPC_LLM_OLLAMA_URL)
-        val llmService = OllamaClient(ollamaUrl)
+        val llmService = OllamaClient(ollamaUrl, embeddingCache, embeddingBatcher)
         llmService.checkServiceIsReachable()
         return llmService
     }
@@ -128,10 +149,15 @@ class NPCFactory(
             this.resourcesProvider = ResourcesProvider(
                 repositoryFactory.conversationRepository,
                 repositoryFactory.recipesRepository,
-                llmClient
+                llmClient,
+                embeddingBatchSize
             )
             resourcesProvider?.loadResources(server, npcName)
         }
     }
 
+    companion object {
+        private const val DEFAULT_EMBEDDING_BATCH_SIZE = 128
+        private const val DEFAULT_EMBEDDING_BATCH_WINDOW_MS = 5L
+    }
 }
@@ -2,11 +2,16 @@ package me.sailex.ai.npc;
 
 import me.sailex.ai.npc.commands.CommandManager;
 import me.sailex.ai.npc.config.ModConfig;
+import me.sailex.ai.npc.context.BlockMetadataTable;
+import me.sailex.ai.npc.context.BlockScanScheduler;
+import me.sailex.ai.npc.context.ServerQueryBridge;
 import lombok.Getter;
 import me.sailex.ai.npc.database.SqliteClient;
 import me.sailex.ai.npc.database.repositories.RepositoryFactory;
 import me.sailex.ai.npc.database.resources.ResourcesProvider;
 import me.sailex.ai.npc.listener.EventListenerRegisterer;
+import me.sailex.ai.npc.tick.DetailLevelResolver;
+import me.sailex.ai.npc.tick.NPCTickScheduler;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.minecraft.server.MinecraftServer;
@@ -30,6 +35,12 @@ public class SecondBrain implements ModInitializer {
 
 		NPCFactory npcFactory = new NPCFactory(config, repositoryFactory);
 
+		BlockMetadataTable.register();
+		BlockScanScheduler.register(config);
+		ServerQueryBridge.register();
+		NPCTickScheduler.register();
+		DetailLevelResolver.register(config);
+
 		EventListenerRegisterer eventListenerRegisterer = new EventListenerRegisterer(npcFactory.getNameToNpc());
 		eventListenerRegisterer.register();
 
@@ -0,0 +1,59 @@
+package me.sailex.ai.npc.action;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Queue of the pending actions of a NPC, ordered by priority and then by the order they were added.
+ * A move that is added directly after another pending move replaces it, only the last target matters.
+ * Thread-safe, actions are added by the llm threads and polled on the server thread.
+ */
+public class ActionQueue {
+
+	private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+			Comparator.comparingInt((Entry entry) -> -entry.action.getPriority())
+					.thenComparingLong(entry -> entry.sequence));
+	private long nextSequence;
+	private Entry lastAdded;
+
+	public synchronized void add(NPCAction action) {
+		if (action.getType() == ActionType.MOVE && lastAdded != null
+				&& lastAdded.action.getType() == ActionType.MOVE && queue.remove(lastAdded)) {
+			lastAdded.action.cancel("replaced by " + action.getDescription());
+		}
+		lastAdded = new Entry(action, nextSequence++);
+		queue.add(lastAdded);
+	}
+
+	/**
+	 * @return the next action or null if no action is pending
+	 */
+	public synchronized NPCAction poll() {
+		Entry entry = queue.poll();
+		return entry != null ? entry.action : null;
+	}
+
+	/**
+	 * @return the next action if its priority is higher than the given priority, otherwise null
+	 */
+	public synchronized NPCAction pollHigherPriority(int priority) {
+		Entry entry = queue.peek();
+		if (entry == null || entry.action.getPriority() <= priority) return null;
+		return queue.poll().action;
+	}
+
+	public synchronized boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	/**
+	 * Removes all pending actions and cancels them.
+	 */
+	public synchronized void clear(String reason) {
+		queue.forEach(entry -> entry.action.cancel(reason));
+		queue.clear();
+		lastAdded = null;
+	}
+
+	private record Entry(NPCAction action, long sequence) {}
+}
@@ -0,0 +1,32 @@
+package me.sailex.ai.npc.action;
+
+/**
+ * Outcome of a NPC action.
+ *
+ * @param status  how the action ended
+ * @param message description of the outcome for the llm
+ */
+public record ActionResult(Status status, String message) {
+
+	public static ActionResult succeeded(String description) {
+		return new ActionResult(Status.SUCCEEDED, description + " succeeded");
+	}
+
+	public static ActionResult failed(String description) {
+		return new ActionResult(Status.FAILED, description + " failed");
+	}
+
+	public static ActionResult failed(String description, String reason) {
+		return new ActionResult(Status.FAILED, description + " failed: " + reason);
+	}
+
+	public static ActionResult cancelled(String description, String reason) {
+		return new ActionResult(Status.CANCELLED, description + " was cancelled: " + reason);
+	}
+
+	public enum Status {
+		SUCCEEDED,
+		FAILED,
+		CANCELLED
+	}
+}
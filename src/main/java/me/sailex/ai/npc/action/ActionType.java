@@ -0,0 +1,26 @@
+package me.sailex.ai.npc.action;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Types of the actions a NPC can queue.
+ * An action with a higher priority is started before queued actions with a lower priority
+ * and interrupts a running action with a lower priority.
+ */
+@Getter
+@AllArgsConstructor
+public enum ActionType {
+
+	CHAT(0, false),
+	DROP(1, false),
+	DROP_ALL(1, false),
+	MOVE(1, true),
+	MINE(1, true),
+	MINE_BLOCKS(1, true),
+	ATTACK(2, false);
+
+	private final int priority;
+	//whether the action runs until baritone is idle again, otherwise it finishes in the tick it started
+	private final boolean longRunning;
+}
@@ -0,0 +1,125 @@
+package me.sailex.ai.npc.action;
+
+import baritone.api.IBaritone;
+import baritone.api.event.events.PathEvent;
+import baritone.api.event.listener.AbstractGameEventListener;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Listens to the path events and ticks of the baritone of a NPC while a long running action of the NPC is armed.
+ * Signals the controller once baritone finished, failed or the NPC got stuck, so the controller doesn't poll baritone.
+ * Baritone listeners can't be unregistered, so the listener is disarmed instead.
+ * Only used on the server thread.
+ */
+public class BaritoneActionListener implements AbstractGameEventListener {
+
+	//ticks the NPC may not move while baritone is active until it is considered stuck
+	public static final int STUCK_TIMEOUT_TICKS = 300;
+
+	private final IBaritone baritone;
+	private final Entity entity;
+	private boolean armed;
+	private Signal signal;
+	private String failure;
+	private BlockPos lastPos;
+	private int ticksWithoutProgress;
+
+	private BaritoneActionListener(IBaritone baritone, Entity entity) {
+		this.baritone = baritone;
+		this.entity = entity;
+	}
+
+	/**
+	 * Creates a listener and registers it to the event bus of the baritone.
+	 */
+	public static BaritoneActionListener register(IBaritone baritone, Entity entity) {
+		BaritoneActionListener listener = new BaritoneActionListener(baritone, entity);
+		baritone.getGameEventHandler().registerEventListener(listener);
+		return listener;
+	}
+
+	/**
+	 * Starts watching baritone, call after the action started baritone.
+	 */
+	public void arm() {
+		armed = true;
+		signal = null;
+		failure = null;
+		lastPos = entity.getBlockPos();
+		ticksWithoutProgress = 0;
+	}
+
+	public void disarm() {
+		armed = false;
+		signal = null;
+	}
+
+	/**
+	 * @return the signal since the last poll or null
+	 */
+	public Signal pollSignal() {
+		Signal currentSignal = signal;
+		signal = null;
+		return currentSignal;
+	}
+
+	/**
+	 * @return the reason why the path failed or null
+	 */
+	public String getFailure() {
+		return failure;
+	}
+
+	/**
+	 * @return true if baritone paths or runs a process
+	 */
+	public static boolean isActive(IBaritone baritone) {
+		return baritone.getPathingBehavior().isPathing()
+				|| baritone.getCustomGoalProcess().isActive()
+				|| baritone.getMineProcess().isActive()
+				|| baritone.getBuilderProcess().isActive();
+	}
+
+	@Override
+	public void onPathEvent(PathEvent event) {
+		if (!armed) return;
+		switch (event) {
+			case CALC_FAILED, NEXT_CALC_FAILED -> failure = "no path was found";
+			case CALC_FINISHED_NOW_EXECUTING -> failure = null;
+			default -> {
+				//other events don't change the outcome
+			}
+		}
+	}
+
+	@Override
+	public void onTickServer() {
+		if (!armed) return;
+		if (!isActive(baritone)) {
+			signal(failure != null ? Signal.FAILED : Signal.FINISHED);
+			return;
+		}
+		BlockPos pos = entity.getBlockPos();
+		if (!pos.equals(lastPos)) {
+			lastPos = pos;
+			ticksWithoutProgress = 0;
+		} else if (++ticksWithoutProgress >= STUCK_TIMEOUT_TICKS) {
+			signal(Signal.STUCK);
+		}
+	}
+
+	private void signal(Signal newSignal) {
+		signal = newSignal;
+		armed = false;
+	}
+
+	public enum Signal {
+		/** baritone is idle again */
+		FINISHED,
+		/** baritone is idle again after no path was found */
+		FAILED,
+		/** the NPC didn't move for {@value BaritoneActionListener#STUCK_TIMEOUT_TICKS} ticks while baritone was active */
+		STUCK
+	}
+}
@@ -0,0 +1,78 @@
+package me.sailex.ai.npc.action;
+
+import baritone.api.IBaritone;
+import baritone.api.utils.BlockOptionalMeta;
+import me.sailex.ai.npc.util.LogUtil;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+/**
+ * Mines blocks of a type with the mine process of baritone until the NPC collected a number of their items.
+ * The progress is the number of collected items since the job started that baritone counts as the block,
+ * which includes its drops (e.g. cobblestone for stone, raw_iron for iron_ore).
+ */
+public class MiningJob {
+
+	private final IBaritone baritone;
+	private final ServerPlayerEntity npcEntity;
+	private final String blockName;
+	private final int count;
+	private BlockOptionalMeta block;
+	private int startCount;
+
+	public MiningJob(IBaritone baritone, ServerPlayerEntity npcEntity, String blockName, int count) {
+		this.baritone = baritone;
+		this.npcEntity = npcEntity;
+		this.blockName = blockName;
+		this.count = count;
+	}
+
+	/**
+	 * Starts mining, must be called on the server thread.
+	 *
+	 * @return false if the block type doesn't exist or the count isn't positive
+	 */
+	public boolean start() {
+		//baritone mines endlessly if the quantity isn't positive
+		if (count <= 0) return false;
+		try {
+			block = new BlockOptionalMeta(npcEntity.getServerWorld(), blockName);
+		} catch (IllegalArgumentException e) {
+			LogUtil.error("Unknown block type to mine: " + blockName);
+			return false;
+		}
+		startCount = countMatchingItems();
+		//the mine process stops once the npc has the quantity in its inventory, so the items it already has are added
+		baritone.getMineProcess().mine(startCount + count, block);
+		return true;
+	}
+
+	public int getMined() {
+		if (block == null) return 0;
+		return Math.max(0, countMatchingItems() - startCount);
+	}
+
+	public boolean isDone() {
+		return getMined() >= count;
+	}
+
+	/**
+	 * Counts the items like the mine process of baritone does to check the quantity.
+	 */
+	private int countMatchingItems() {
+		PlayerInventory inventory = npcEntity.getInventory();
+		int matching = 0;
+		for (int slot = 0; slot < inventory.size(); slot++) {
+			ItemStack stack = inventory.getStack(slot);
+			if (!stack.isEmpty() && block.matches(stack)) {
+				matching += stack.getCount();
+			}
+		}
+		return matching;
+	}
+
+	public String getProgress() {
+		return Math.min(getMined(), count) + " of " + count + " " + blockName + " collected";
+	}
+}
@@ -0,0 +1,101 @@
+package me.sailex.ai.npc.action;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Action queued by the llm, started and finished on the server thread by the {@link me.sailex.ai.npc.NPCController}.
+ */
+public class NPCAction {
+
+	@Getter
+	private final ActionType type;
+	@Getter
+	private final String description;
+	private final BooleanSupplier start;
+	private final BooleanSupplier isSuccessful;
+	private Supplier<String> progress;
+	private boolean started;
+	@Getter
+	private final CompletableFuture<ActionResult> result = new CompletableFuture<>();
+
+	/**
+	 * @param description  description of the action, equal descriptions describe the same action
+	 * @param start        starts the action, returns false if the action couldn't be started
+	 * @param isSuccessful checks if the action succeeded once it finished
+	 */
+	public NPCAction(ActionType type, String description, BooleanSupplier start, BooleanSupplier isSuccessful) {
+		this.type = type;
+		this.description = description;
+		this.start = start;
+		this.isSuccessful = isSuccessful;
+	}
+
+	public NPCAction(ActionType type, String description, Runnable start, BooleanSupplier isSuccessful) {
+		this(type, description, () -> {
+			start.run();
+			return true;
+		}, isSuccessful);
+	}
+
+	public NPCAction(ActionType type, String description, Runnable start) {
+		this(type, description, start, () -> true);
+	}
+
+	/**
+	 * @param progress describes the progress of the running action, appended to its result
+	 */
+	public NPCAction withProgress(Supplier<String> progress) {
+		this.progress = progress;
+		return this;
+	}
+
+	/**
+	 * Starts the action. Finishes it directly if it couldn't be started or isn't long running.
+	 *
+	 * @return true if the action is still running
+	 */
+	public boolean start() {
+		started = true;
+		if (!start.getAsBoolean()) {
+			result.complete(ActionResult.failed(description));
+			return false;
+		}
+		if (!type.isLongRunning()) {
+			finish();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Completes the result depending on whether the action succeeded.
+	 */
+	public void finish() {
+		result.complete(isSuccessful.getAsBoolean()
+				? ActionResult.succeeded(describe())
+				: ActionResult.failed(describe()));
+	}
+
+	public void fail(String reason) {
+		result.complete(ActionResult.failed(describe(), reason));
+	}
+
+	public void cancel(String reason) {
+		result.complete(ActionResult.cancelled(describe(), reason));
+	}
+
+	/**
+	 * Describes the action, with its progress once it started. Must be called on the server thread.
+	 */
+	public String describe() {
+		return started && progress != null ? description + " (" + progress.get() + ")" : description;
+	}
+
+	public int getPriority() {
+		return type.getPriority();
+	}
+}
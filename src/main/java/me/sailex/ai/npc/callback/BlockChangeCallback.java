@@ -0,0 +1,22 @@
+package me.sailex.ai.npc.callback;
+
+import net.fabricmc.fabric.api.event.Event;
+import net.fabricmc.fabric.api.event.EventFactory;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+
+public interface BlockChangeCallback {
+
+	Event<BlockChangeCallback> EVENT = EventFactory.createArrayBacked(
+			BlockChangeCallback.class, listeners -> (world, pos, oldState, newState) -> {
+				for (BlockChangeCallback listener : listeners) {
+					listener.onBlockChange(world, pos, oldState, newState);
+				}
+			});
+
+	/**
+	 * Called after a block state in a loaded chunk of the world changed.
+	 */
+	void onBlockChange(ServerWorld world, BlockPos pos, BlockState oldState, BlockState newState);
+}
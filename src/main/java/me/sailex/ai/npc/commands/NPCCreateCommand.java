@@ -8,13 +8,14 @@ import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.context.CommandContext;
 import lombok.AllArgsConstructor;
+import me.sailex.ai.npc.context.format.ContextFormat;
 import me.sailex.ai.npc.exception.LLMServiceException;
 import me.sailex.ai.npc.exception.NPCCreationException;
 import me.sailex.ai.npc.llm.LLMType;
 import me.sailex.ai.npc.NPCFactory;
+import me.sailex.ai.npc.tick.NPCTickScheduler;
 import me.sailex.ai.npc.util.LogUtil;
 
-import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.minecraft.registry.RegistryKey;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -24,11 +25,15 @@ import net.minecraft.world.World;
 
 import java.util.Objects;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @AllArgsConstructor
 public class NPCCreateCommand {
 
 	private static final String LLM_TYPE = "llm-type";
+	private static final String CONTEXT_FORMAT = "context-format";
+	private static final int SPAWN_TIMEOUT_SECONDS = 20;
 
 	private final NPCFactory npcFactory;
 
@@ -42,7 +47,14 @@ public class NPCCreateCommand {
 										builder.suggest(llmType.toString());
 									}
 									return builder.buildFuture();
-								}).executes(this::createNpcWithLLM)));
+								}).executes(this::createNpcWithLLM)
+								.then(argument(CONTEXT_FORMAT, StringArgumentType.string())
+										.suggests((context, builder) -> {
+											for (ContextFormat contextFormat : ContextFormat.values()) {
+												builder.suggest(contextFormat.getName());
+											}
+											return builder.buildFuture();
+										}).executes(this::createNpcWithLLM))));
 	}
 
 	private int createNpcWithLLM(CommandContext<ServerCommandSource> context) {
@@ -52,6 +64,7 @@ public class NPCCreateCommand {
 		}
 		String name = StringArgumentType.getString(context, "name");
 		String llmType = StringArgumentType.getString(context, LLM_TYPE);
+		String contextFormat = getOptionalString(context, CONTEXT_FORMAT);
 
 		try {
 			spawnNpc(context.getSource(), name);
@@ -60,9 +73,12 @@ public class NPCCreateCommand {
 
 			new Thread(() -> {
                 try {
-                    latch.await();
+                    if (!latch.await(SPAWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+						LogUtil.error("NPC " + name + " did not join the server");
+						return;
+					}
                 	ServerPlayerEntity npc = context.getSource().getServer().getPlayerManager().getPlayer(name);
-					npcFactory.createNpc(context.getSource().getServer(), Objects.requireNonNull(npc), llmType);
+					npcFactory.createNpc(context.getSource().getServer(), Objects.requireNonNull(npc), llmType, contextFormat);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 } catch (NPCCreationException e) {
@@ -78,6 +94,14 @@ public class NPCCreateCommand {
 		}
 	}
 
+	private String getOptionalString(CommandContext<ServerCommandSource> context, String name) {
+		try {
+			return StringArgumentType.getString(context, name);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
 	private void spawnNpc(ServerCommandSource source, String name) {
 		RegistryKey<World> dimensionKey = source.getWorld().getRegistryKey();
 		ServerPlayerEntity player = source.getPlayer();
@@ -91,10 +115,13 @@ public class NPCCreateCommand {
 	}
 
 	private void checkPlayerAvailable(String npcName, CountDownLatch latch) {
-		ServerTickEvents.END_SERVER_TICK.register(server -> {
+		AtomicInteger remainingTicks = new AtomicInteger(SPAWN_TIMEOUT_SECONDS * 20);
+		NPCTickScheduler.schedule(server -> {
 			if (server.getPlayerManager().getPlayer(npcName) != null) {
 				latch.countDown();
+				return false;
 			}
+			return remainingTicks.decrementAndGet() > 0;
 		});
 	}
 
@@ -14,5 +14,16 @@ public class ModConfig extends AConfig {
 
 		properties.setProperty(ConfigConstants.NPC_LLM_OPENAI_API_KEY, "");
 		properties.setProperty(ConfigConstants.NPC_LLM_OPENAI_BASE_URL, "https://api.openai.com");
+
+		properties.setProperty(ConfigConstants.NPC_EMBEDDING_BATCH_SIZE, "128");
+		properties.setProperty(ConfigConstants.NPC_EMBEDDING_BATCH_WINDOW_MS, "5");
+
+		properties.setProperty(ConfigConstants.NPC_SCAN_CHUNK_RADIUS, "4");
+		properties.setProperty(ConfigConstants.NPC_SCAN_TICK_BUDGET_MS, "2");
+
+		properties.setProperty(ConfigConstants.NPC_CONTEXT_FORMAT, "verbose");
+
+		properties.setProperty(ConfigConstants.NPC_LOD_FULL_DISTANCE, "32");
+		properties.setProperty(ConfigConstants.NPC_LOD_DORMANT_DISTANCE, "128");
 	}
 }
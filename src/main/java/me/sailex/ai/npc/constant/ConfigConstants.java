@@ -15,10 +15,24 @@ public class ConfigConstants {
 	public static final String NPC_LLM_OPENAI_API_KEY = "npc.llm.openai.api_key";
 	public static final String NPC_LLM_OPENAI_BASE_URL = "npc.llm.openai.base_url";
 	public static final String NPC_LLM_TYPE = "npc.llm.type";
+	public static final String NPC_EMBEDDING_BATCH_SIZE = "npc.embedding.batch_size";
+	public static final String NPC_EMBEDDING_BATCH_WINDOW_MS = "npc.embedding.batch_window_ms";
+	public static final String NPC_SCAN_CHUNK_RADIUS = "npc.scan.chunk_radius";
+	public static final String NPC_SCAN_TICK_BUDGET_MS = "npc.scan.tick_budget_ms";
+	public static final String NPC_CONTEXT_FORMAT = "npc.context.format";
+	public static final String NPC_LOD_FULL_DISTANCE = "npc.lod.full_distance";
+	public static final String NPC_LOD_DORMANT_DISTANCE = "npc.lod.dormant_distance";
 
 	public static final Set<String> ALLOWED_KEYS = Set.of(
 			NPC_LLM_OLLAMA_URL,
 			NPC_LLM_OLLAMA_MODEL,
 			NPC_LLM_OPENAI_MODEL,
-			NPC_LLM_TYPE);
+			NPC_LLM_TYPE,
+			NPC_EMBEDDING_BATCH_SIZE,
+			NPC_EMBEDDING_BATCH_WINDOW_MS,
+			NPC_SCAN_CHUNK_RADIUS,
+			NPC_SCAN_TICK_BUDGET_MS,
+			NPC_CONTEXT_FORMAT,
+			NPC_LOD_FULL_DISTANCE,
+			NPC_LOD_DORMANT_DISTANCE);
 }
@@ -0,0 +1,68 @@
+package me.sailex.ai.npc.context;
+
+import static me.sailex.ai.npc.util.WorldUtil.getMiningLevel;
+import static me.sailex.ai.npc.util.WorldUtil.getToolNeeded;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.CommonLifecycleEvents;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.registry.Registries;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Lookup table of the mining metadata of every block state, indexed by the raw id of the state.
+ * Built when the tags are loaded (at server start and on every reload), because the metadata depends on the block tags.
+ */
+public class BlockMetadataTable {
+
+	private static final Logger LOGGER = LogManager.getLogger(BlockMetadataTable.class);
+
+	private static volatile BlockMetadata[] table = new BlockMetadata[0];
+
+	private BlockMetadataTable() {}
+
+	/**
+	 * Registers the listener that rebuilds the table on tag (re)load.
+	 */
+	public static void register() {
+		CommonLifecycleEvents.TAGS_LOADED.register((registries, client) -> {
+			if (!client) rebuild();
+		});
+	}
+
+	/**
+	 * @return the metadata of the state, computed directly if the table isn't built yet
+	 */
+	public static BlockMetadata get(BlockState state) {
+		BlockMetadata[] currentTable = table;
+		int rawId = Block.getRawIdFromState(state);
+		if (rawId >= 0 && rawId < currentTable.length) {
+			return currentTable[rawId];
+		}
+		return compute(state);
+	}
+
+	private static void rebuild() {
+		BlockMetadata[] newTable = new BlockMetadata[Block.STATE_IDS.size()];
+		for (BlockState state : Block.STATE_IDS) {
+			newTable[Block.getRawIdFromState(state)] = compute(state);
+		}
+		table = newTable;
+		LOGGER.info("Built mining metadata of {} block states", newTable.length);
+	}
+
+	private static BlockMetadata compute(BlockState state) {
+		return new BlockMetadata(
+				Registries.BLOCK.getId(state.getBlock()).getPath().intern(),
+				getMiningLevel(state),
+				getToolNeeded(state));
+	}
+
+	/**
+	 * @param name        path of the block id
+	 * @param miningLevel lowest tool material that can mine the block
+	 * @param toolNeeded  tool that mines the block fastest
+	 */
+	public record BlockMetadata(String name, String miningLevel, String toolNeeded) {}
+}
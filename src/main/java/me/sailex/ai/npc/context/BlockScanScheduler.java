@@ -0,0 +1,223 @@
+package me.sailex.ai.npc.context;
+
+import me.sailex.ai.npc.config.ModConfig;
+import me.sailex.ai.npc.constant.ConfigConstants;
+import me.sailex.ai.npc.model.context.WorldContext;
+import me.sailex.ai.npc.tick.NPCTickScheduler;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scans the blocks around the NPCs, spread over the ticks.
+ * The server thread only captures a {@link BlockSnapshot} of the sections, every tick the captures may use
+ * the configured time budget, which is shared round-robin between the NPCs. The snapshots are analysed off the server thread.
+ * The result of a scan is published progressively (nearest sections first) until the first scan finished,
+ * afterward the result of the latest finished scan is served while the next scan runs. Queries never wait for a scan.
+ * Scans around NPCs whose blocks were not queried for a while are stopped and started again on the next query.
+ * The scans are ticked by the {@link NPCTickScheduler} while there are jobs.
+ */
+public class BlockScanScheduler {
+
+	private static final Logger LOGGER = LogManager.getLogger(BlockScanScheduler.class);
+	private static final int VERTICAL_SCAN_RANGE = 16;
+	private static final int RESCAN_INTERVAL_TICKS = 20;
+	private static final int DEFAULT_CHUNK_RADIUS = 4;
+	private static final long DEFAULT_TICK_BUDGET_MILLIS = 2;
+	private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	private static final Map<UUID, ScanJob> JOBS = new ConcurrentHashMap<>();
+	//whether the tick task is scheduled
+	private static final AtomicBoolean TICKING = new AtomicBoolean();
+	//copy of the jobs for the tick, only rebuilt if a job is added or removed
+	private static volatile ScanJob[] jobs = new ScanJob[0];
+	private static int chunkRadius = DEFAULT_CHUNK_RADIUS;
+	private static long tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TICK_BUDGET_MILLIS);
+	//job that starts the next tick, so every NPC gets the budget first once in a while
+	private static int firstJob;
+
+	private BlockScanScheduler() {}
+
+	/**
+	 * Reads the scan radius and tick budget of the config and drops the jobs when the server stopped.
+	 */
+	public static void register(ModConfig config) {
+		chunkRadius = parseProperty(config, ConfigConstants.NPC_SCAN_CHUNK_RADIUS, DEFAULT_CHUNK_RADIUS);
+		tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(
+				parseProperty(config, ConfigConstants.NPC_SCAN_TICK_BUDGET_MS, DEFAULT_TICK_BUDGET_MILLIS));
+		//the tick scheduler drops its tasks when the server stopped
+		ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+			JOBS.clear();
+			refreshJobs();
+			TICKING.set(false);
+		});
+	}
+
+	/**
+	 * Gets the nearest block of every block type around the NPC.
+	 *
+	 * @see #getBlockIndex(ServerPlayerEntity)
+	 */
+	public static List<WorldContext.BlockData> getNearbyBlocks(ServerPlayerEntity npcEntity) {
+		return getBlockIndex(npcEntity).getNearestBlocks();
+	}
+
+	/**
+	 * Gets the index of the blocks around the NPC as of the latest published result, without waiting for a scan.
+	 * The first call starts scanning around the NPC, until the first scan finished the partial result is returned.
+	 * On the server thread the blocks are scanned directly.
+	 */
+	public static BlockSpatialIndex getBlockIndex(ServerPlayerEntity npcEntity) {
+		MinecraftServer server = npcEntity.getServer();
+		if (server == null || server.isOnThread()) {
+			return BlockScanner.scanBlocks(npcEntity.getWorld(), npcEntity.getBlockPos(), chunkRadius, VERTICAL_SCAN_RANGE);
+		}
+		ScanJob job = JOBS.get(npcEntity.getUuid());
+		if (job == null) {
+			job = JOBS.computeIfAbsent(npcEntity.getUuid(), uuid -> new ScanJob(npcEntity));
+			refreshJobs();
+			if (TICKING.compareAndSet(false, true)) {
+				NPCTickScheduler.schedule(BlockScanScheduler::tick);
+			}
+		}
+		return job.getResult();
+	}
+
+	/**
+	 * Stops scanning around the NPC.
+	 */
+	public static void untrack(ServerPlayerEntity npcEntity) {
+		if (JOBS.remove(npcEntity.getUuid()) != null) {
+			refreshJobs();
+		}
+	}
+
+	private static void removeJob(ScanJob job) {
+		if (JOBS.remove(job.npcEntity.getUuid(), job)) {
+			refreshJobs();
+		}
+	}
+
+	private static synchronized void refreshJobs() {
+		jobs = JOBS.values().toArray(new ScanJob[0]);
+	}
+
+	/**
+	 * @return false if there are no jobs left, the task is scheduled again with the next job
+	 */
+	private static boolean tick(MinecraftServer server) {
+		ScanJob[] currentJobs = jobs;
+		if (currentJobs.length == 0) {
+			TICKING.set(false);
+			//a job that was added meanwhile didn't schedule the task
+			return jobs.length > 0 && TICKING.compareAndSet(false, true);
+		}
+		long deadline = System.nanoTime() + tickBudgetNanos;
+		int start = Math.floorMod(firstJob++, currentJobs.length);
+
+		boolean scanned = true;
+		while (scanned && System.nanoTime() < deadline) {
+			scanned = false;
+			for (int i = 0; i < currentJobs.length && System.nanoTime() < deadline; i++) {
+				scanned |= currentJobs[(start + i) % currentJobs.length].scanNext(server.getTicks());
+			}
+		}
+		for (ScanJob job : currentJobs) {
+			job.publishPartialResult();
+		}
+		return true;
+	}
+
+	private static long parseProperty(ModConfig config, String key, long defaultValue) {
+		try {
+			return Long.parseLong(config.getProperty(key));
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Invalid value of {}, using {}", key, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	private static int parseProperty(ModConfig config, String key, int defaultValue) {
+		return (int) parseProperty(config, key, (long) defaultValue);
+	}
+
+	private static class ScanJob {
+
+		private final ServerPlayerEntity npcEntity;
+		private volatile boolean firstScanDone;
+		private volatile BlockSpatialIndex result = BlockSpatialIndex.EMPTY;
+		private BlockSnapshot snapshot;
+		//analysis of a partial or complete snapshot that runs off the server thread
+		private CompletableFuture<Void> analysis = CompletableFuture.completedFuture(null);
+		private int lastScanStart = Integer.MIN_VALUE;
+		private volatile long lastQueried = System.nanoTime();
+
+		private ScanJob(ServerPlayerEntity npcEntity) {
+			this.npcEntity = npcEntity;
+		}
+
+		/**
+		 * Captures the next section of the current snapshot or starts a new snapshot if the rescan interval passed.
+		 * A complete snapshot is analysed off the server thread.
+		 * The job is stopped if the NPC was removed or its blocks were not queried within the idle timeout.
+		 *
+		 * @return true if a section was captured
+		 */
+		private boolean scanNext(int tick) {
+			if (npcEntity.isRemoved() || System.nanoTime() - lastQueried > IDLE_TIMEOUT_NANOS) {
+				removeJob(this);
+				return false;
+			}
+			if (snapshot == null) {
+				if (tick - lastScanStart < RESCAN_INTERVAL_TICKS || !analysis.isDone()) return false;
+				snapshot = new BlockSnapshot(npcEntity.getWorld(), npcEntity.getBlockPos(), chunkRadius, VERTICAL_SCAN_RANGE);
+				lastScanStart = tick;
+			}
+			snapshot.captureNext();
+			if (snapshot.isComplete()) {
+				BlockSnapshot completeSnapshot = snapshot;
+				snapshot = null;
+				analysis = analysis.thenRunAsync(() -> {
+					result = BlockScanner.analyze(completeSnapshot, completeSnapshot.getCaptured());
+					firstScanDone = true;
+				}, ForkJoinPool.commonPool()).exceptionally(this::logError);
+			}
+			return true;
+		}
+
+		/**
+		 * Analyses the captured part of the snapshot until the first scan finished.
+		 */
+		private void publishPartialResult() {
+			if (snapshot == null || firstScanDone || !analysis.isDone()) return;
+			BlockSnapshot partialSnapshot = snapshot;
+			int capturedCount = partialSnapshot.getCaptured();
+			analysis = CompletableFuture.runAsync(() -> {
+				if (!firstScanDone) {
+					result = BlockScanner.analyze(partialSnapshot, capturedCount);
+				}
+			}, ForkJoinPool.commonPool()).exceptionally(this::logError);
+		}
+
+		private Void logError(Throwable e) {
+			LOGGER.error("Could not analyse blocks around {}", npcEntity.getName().getString(), e);
+			return null;
+		}
+
+		private BlockSpatialIndex getResult() {
+			lastQueried = System.nanoTime();
+			return result;
+		}
+	}
+}
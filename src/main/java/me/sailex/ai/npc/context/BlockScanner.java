@@ -0,0 +1,141 @@
+package me.sailex.ai.npc.context;
+
+import me.sailex.ai.npc.context.BlockSpatialIndex.IndexedSection;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Indexes the exposed blocks (blocks next to air) of a {@link BlockSnapshot} in a {@link BlockSpatialIndex}.
+ * Runs off the server thread: the chunk columns of the snapshot are analysed in parallel via fork/join.
+ * Missing section summaries are computed from the copied sections and cached in the {@link BlockSummaryCache}.
+ */
+public class BlockScanner {
+
+	//chunk columns that are analysed by one fork/join task
+	private static final int CHUNKS_PER_TASK = 4;
+
+	private BlockScanner() {}
+
+	/**
+	 * Captures and indexes the blocks around the center at once. Must be called on the server thread.
+	 *
+	 * @param chunkRadius   radius of scanned chunks around the chunk of the center
+	 * @param verticalRange scanned blocks above and below the center
+	 */
+	public static BlockSpatialIndex scanBlocks(World world, BlockPos center, int chunkRadius, int verticalRange) {
+		BlockSnapshot snapshot = new BlockSnapshot(world, center, chunkRadius, verticalRange);
+		while (!snapshot.isComplete()) {
+			snapshot.captureNext();
+		}
+		return analyze(snapshot, snapshot.getCaptured());
+	}
+
+	/**
+	 * Indexes the sections of the snapshot that were captured until the given count.
+	 */
+	public static BlockSpatialIndex analyze(BlockSnapshot snapshot, int capturedCount) {
+		int innerDiameter = snapshot.getChunkDiameter() - 2;
+		if (innerDiameter <= 0 || snapshot.getSectionHeight() <= 2) return BlockSpatialIndex.EMPTY;
+		List<IndexedSection> sections = ForkJoinPool.commonPool()
+				.invoke(new ChunkTask(snapshot, capturedCount, 0, innerDiameter * innerDiameter));
+		return new BlockSpatialIndex(snapshot.getCenter(), snapshot.getMinY(), snapshot.getMaxY(), sections);
+	}
+
+	/**
+	 * Summarizes a range of the scanned (not border) chunk columns of the snapshot.
+	 */
+	private static class ChunkTask extends RecursiveTask<List<IndexedSection>> {
+
+		private final BlockSnapshot snapshot;
+		private final int capturedCount;
+		private final int fromChunk;
+		private final int toChunk;
+
+		private ChunkTask(BlockSnapshot snapshot, int capturedCount, int fromChunk, int toChunk) {
+			this.snapshot = snapshot;
+			this.capturedCount = capturedCount;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected List<IndexedSection> compute() {
+			if (toChunk - fromChunk > CHUNKS_PER_TASK) {
+				int middle = (fromChunk + toChunk) >>> 1;
+				ChunkTask left = new ChunkTask(snapshot, capturedCount, fromChunk, middle);
+				left.fork();
+				List<IndexedSection> right = new ChunkTask(snapshot, capturedCount, middle, toChunk).compute();
+				List<IndexedSection> sections = left.join();
+				sections.addAll(right);
+				return sections;
+			}
+			List<IndexedSection> sections = new ArrayList<>();
+			int innerDiameter = snapshot.getChunkDiameter() - 2;
+			for (int chunk = fromChunk; chunk < toChunk; chunk++) {
+				int chunkX = chunk % innerDiameter + 1;
+				int chunkZ = chunk / innerDiameter + 1;
+				for (int sectionY = 1; sectionY < snapshot.getSectionHeight() - 1; sectionY++) {
+					SectionSummary summary = getSummary(snapshot.index(chunkX, sectionY, chunkZ), chunkX, sectionY, chunkZ);
+					if (summary != null) {
+						sections.add(new IndexedSection(
+								(snapshot.getMinChunkX() + chunkX) << 4,
+								(snapshot.getMinSectionY() + sectionY) << 4,
+								(snapshot.getMinChunkZ() + chunkZ) << 4,
+								summary));
+					}
+				}
+			}
+			return sections;
+		}
+
+		private SectionSummary getSummary(int index, int chunkX, int sectionY, int chunkZ) {
+			if (!snapshot.isCaptured(index, capturedCount)) return null;
+			SectionSummary summary = snapshot.getSummary(index);
+			if (summary != null || snapshot.getBlockStates(index) == null) return summary;
+
+			int[] neighbourIndices = {
+					snapshot.index(chunkX - 1, sectionY, chunkZ), snapshot.index(chunkX + 1, sectionY, chunkZ),
+					snapshot.index(chunkX, sectionY - 1, chunkZ), snapshot.index(chunkX, sectionY + 1, chunkZ),
+					snapshot.index(chunkX, sectionY, chunkZ - 1), snapshot.index(chunkX, sectionY, chunkZ + 1)
+			};
+			SectionOccupancy[] neighbours = new SectionOccupancy[6];
+			boolean allNeighboursCaptured = true;
+			//the summary is only valid if the section wasn't invalidated after the oldest of the used sections was captured
+			long copiedAt = snapshot.getCaptureClock(index);
+			for (int i = 0; i < neighbours.length; i++) {
+				allNeighboursCaptured &= snapshot.isCaptured(neighbourIndices[i], capturedCount);
+				neighbours[i] = getOccupancy(neighbourIndices[i]);
+				copiedAt = Math.min(copiedAt, snapshot.getCaptureClock(neighbourIndices[i]));
+			}
+			summary = SectionSummary.of(snapshot.getBlockStates(index), getOccupancy(index), neighbours);
+			//summaries of a partial snapshot may miss the exposure at not captured neighbours
+			if (allNeighboursCaptured) {
+				BlockSummaryCache.putSummary(snapshot.getWorld(), sectionKey(index), summary, copiedAt);
+			}
+			return summary;
+		}
+
+		private SectionOccupancy getOccupancy(int index) {
+			if (!snapshot.isCaptured(index, capturedCount)) return null;
+			SectionOccupancy occupancy = snapshot.getOccupancy(index);
+			if (occupancy != null || snapshot.getBlockStates(index) == null) return occupancy;
+			occupancy = SectionOccupancy.of(snapshot.getBlockStates(index));
+			snapshot.setOccupancy(index, occupancy);
+			BlockSummaryCache.putOccupancy(snapshot.getWorld(), sectionKey(index), occupancy, snapshot.getCaptureClock(index));
+			return occupancy;
+		}
+
+		private long sectionKey(int index) {
+			return ChunkSectionPos.asLong(
+					snapshot.getMinChunkX() + snapshot.chunkX(index),
+					snapshot.getMinSectionY() + snapshot.sectionY(index),
+					snapshot.getMinChunkZ() + snapshot.chunkZ(index));
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package me.sailex.ai.npc.context;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Copy of the sections around a position that can be analysed off the server thread.
+ * Captured on the server thread section by section (nearest first) via {@link #captureNext()}:
+ * a section is referenced by its cached summary/occupancy, only missing ones are copied.
+ * The scanned sections are surrounded by a border of sections that is only needed for the exposure of blocks.
+ */
+public class BlockSnapshot {
+
+	private final World world;
+	private final BlockPos center;
+	private final int minY;
+	private final int maxY;
+	private final int minChunkX;
+	private final int minChunkZ;
+	private final int minSectionY;
+	//size of the grid of sections including the border
+	private final int chunkDiameter;
+	private final int sectionHeight;
+
+	private final SectionSummary[] summaries;
+	private final SectionOccupancy[] occupancies;
+	private final PalettedContainer<BlockState>[] blockStates;
+	//invalidation clock of the cache when the sections were captured
+	private final long[] captureClocks;
+	//grid indices ordered by distance to the center and the capture position of every grid index
+	private final int[] captureOrder;
+	private final int[] captureRanks;
+	private int captured;
+
+	/**
+	 * Must be created on the server thread.
+	 *
+	 * @param chunkRadius   radius of scanned chunks around the chunk of the center
+	 * @param verticalRange scanned blocks above and below the center
+	 */
+	@SuppressWarnings("unchecked")
+	public BlockSnapshot(World world, BlockPos center, int chunkRadius, int verticalRange) {
+		this.world = world;
+		this.center = center.toImmutable();
+		this.minY = Math.max(world.getBottomY(), center.getY() - verticalRange);
+		this.maxY = Math.min(world.getBottomY() + world.getHeight(), center.getY() + verticalRange);
+		this.minChunkX = ChunkSectionPos.getSectionCoord(center.getX()) - chunkRadius - 1;
+		this.minChunkZ = ChunkSectionPos.getSectionCoord(center.getZ()) - chunkRadius - 1;
+		this.minSectionY = ChunkSectionPos.getSectionCoord(minY) - 1;
+		this.chunkDiameter = 2 * chunkRadius + 3;
+		this.sectionHeight = minY < maxY ? ChunkSectionPos.getSectionCoord(maxY - 1) - minSectionY + 2 : 0;
+
+		int gridSize = chunkDiameter * sectionHeight * chunkDiameter;
+		this.summaries = new SectionSummary[gridSize];
+		this.occupancies = new SectionOccupancy[gridSize];
+		this.blockStates = new PalettedContainer[gridSize];
+		this.captureClocks = new long[gridSize];
+		this.captureOrder = IntStream.range(0, gridSize).boxed()
+				.sorted(Comparator.comparingInt(this::distanceToCenter))
+				.mapToInt(Integer::intValue)
+				.toArray();
+		this.captureRanks = new int[gridSize];
+		for (int rank = 0; rank < gridSize; rank++) {
+			captureRanks[captureOrder[rank]] = rank;
+		}
+	}
+
+	/**
+	 * Captures the next section. Must be called on the server thread.
+	 */
+	public void captureNext() {
+		if (isComplete()) return;
+		int index = captureOrder[captured];
+		int chunkX = minChunkX + chunkX(index);
+		int sectionY = minSectionY + sectionY(index);
+		int chunkZ = minChunkZ + chunkZ(index);
+		long key = ChunkSectionPos.asLong(chunkX, sectionY, chunkZ);
+
+		captureClocks[index] = BlockSummaryCache.getClock(world);
+		if (isScanned(index)) {
+			summaries[index] = BlockSummaryCache.getSummary(world, key);
+		}
+		occupancies[index] = BlockSummaryCache.getOccupancy(world, key);
+		if (occupancies[index] == null || (isScanned(index) && summaries[index] == null)) {
+			ChunkSection section = getSection(chunkX, sectionY, chunkZ);
+			if (section != null) {
+				blockStates[index] = section.getBlockStateContainer().copy();
+			}
+		}
+		captured++;
+	}
+
+	public boolean isComplete() {
+		return captured >= captureOrder.length;
+	}
+
+	/**
+	 * @return number of captured sections, the snapshot can be analysed up to this count while capturing continues
+	 */
+	public int getCaptured() {
+		return captured;
+	}
+
+	private ChunkSection getSection(int chunkX, int sectionY, int chunkZ) {
+		int sectionIndex = world.sectionCoordToIndex(sectionY);
+		if (sectionIndex < 0 || sectionIndex >= world.countVerticalSections()) return null;
+		WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkX, chunkZ);
+		return chunk == null ? null : chunk.getSection(sectionIndex);
+	}
+
+	private int distanceToCenter(int index) {
+		int dx = minChunkX + chunkX(index) - ChunkSectionPos.getSectionCoord(center.getX());
+		int dy = minSectionY + sectionY(index) - ChunkSectionPos.getSectionCoord(center.getY());
+		int dz = minChunkZ + chunkZ(index) - ChunkSectionPos.getSectionCoord(center.getZ());
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * @return true if the section at the grid index is scanned and not part of the border
+	 */
+	boolean isScanned(int index) {
+		int x = chunkX(index);
+		int y = sectionY(index);
+		int z = chunkZ(index);
+		return x > 0 && x < chunkDiameter - 1 && z > 0 && z < chunkDiameter - 1 && y > 0 && y < sectionHeight - 1;
+	}
+
+	boolean isCaptured(int index, int capturedCount) {
+		return captureRanks[index] < capturedCount;
+	}
+
+	int index(int chunkX, int sectionY, int chunkZ) {
+		return (sectionY * chunkDiameter + chunkZ) * chunkDiameter + chunkX;
+	}
+
+	int chunkX(int index) {
+		return index % chunkDiameter;
+	}
+
+	int chunkZ(int index) {
+		return index / chunkDiameter % chunkDiameter;
+	}
+
+	int sectionY(int index) {
+		return index / (chunkDiameter * chunkDiameter);
+	}
+
+	int getChunkDiameter() {
+		return chunkDiameter;
+	}
+
+	int getSectionHeight() {
+		return sectionHeight;
+	}
+
+	int getMinChunkX() {
+		return minChunkX;
+	}
+
+	int getMinChunkZ() {
+		return minChunkZ;
+	}
+
+	int getMinSectionY() {
+		return minSectionY;
+	}
+
+	World getWorld() {
+		return world;
+	}
+
+	BlockPos getCenter() {
+		return center;
+	}
+
+	int getMinY() {
+		return minY;
+	}
+
+	int getMaxY() {
+		return maxY;
+	}
+
+	long getCaptureClock(int index) {
+		return captureClocks[index];
+	}
+
+	SectionSummary getSummary(int index) {
+		return summaries[index];
+	}
+
+	SectionOccupancy getOccupancy(int index) {
+		return occupancies[index];
+	}
+
+	void setOccupancy(int index, SectionOccupancy occupancy) {
+		occupancies[index] = occupancy;
+	}
+
+	PalettedContainer<BlockState> getBlockStates(int index) {
+		return blockStates[index];
+	}
+}
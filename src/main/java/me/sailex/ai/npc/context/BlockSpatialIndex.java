@@ -0,0 +1,187 @@
+package me.sailex.ai.npc.context;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import me.sailex.ai.npc.context.BlockMetadataTable.BlockMetadata;
+import me.sailex.ai.npc.model.context.WorldContext;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable spatial index of the exposed blocks around a position.
+ * The blocks are bucketed per block type, every bucket holds a list of cells, one per chunk section with
+ * exposed blocks of the type.
+ * Nearest queries visit the sections of a bucket ordered by their minimal distance and stop
+ * as soon as no remaining section can contain a nearer block.
+ */
+public class BlockSpatialIndex {
+
+	public static final BlockSpatialIndex EMPTY = new BlockSpatialIndex(BlockPos.ORIGIN, 0, 0, List.of());
+
+	private final int minY;
+	private final int maxY;
+	private final Int2ObjectOpenHashMap<Bucket> buckets = new Int2ObjectOpenHashMap<>();
+	private final List<WorldContext.BlockData> nearestBlocks;
+
+	/**
+	 * @param center   center of the indexed area, used for {@link #getNearestBlocks()}
+	 * @param minY     lowest indexed y (inclusive)
+	 * @param maxY     highest indexed y (exclusive)
+	 * @param sections summaries of the indexed sections
+	 */
+	BlockSpatialIndex(BlockPos center, int minY, int maxY, List<IndexedSection> sections) {
+		this.minY = minY;
+		this.maxY = maxY;
+		for (IndexedSection section : sections) {
+			SectionSummary summary = section.summary();
+			for (int type = 0; type < summary.size(); type++) {
+				int typeIndex = type;
+				Bucket bucket = buckets.computeIfAbsent(summary.getBlockId(type),
+						id -> new Bucket(BlockMetadataTable.get(summary.getState(typeIndex))));
+				bucket.count += summary.getCount(type);
+
+				short[] exposedBlocks = summary.getExposedBlocks(type);
+				if (exposedBlocks.length == 0) continue;
+				bucket.sections.add(new Cell(section.baseX(), section.baseY(), section.baseZ(), exposedBlocks));
+			}
+		}
+		this.nearestBlocks = buckets.values().stream()
+				.map(bucket -> findNearest(List.of(bucket), center, Long.MAX_VALUE, 1))
+				.filter(hits -> !hits.isEmpty())
+				.map(hits -> hits.get(0))
+				.sorted(Comparator.comparingLong(Hit::distance))
+				.map(Hit::toBlockData)
+				.toList();
+	}
+
+	/**
+	 * @return the nearest exposed block of every block type ordered by distance to the center
+	 */
+	public List<WorldContext.BlockData> getNearestBlocks() {
+		return nearestBlocks;
+	}
+
+	/**
+	 * Finds the exposed blocks nearest to the origin.
+	 *
+	 * @param blockName  part of the block name (e.g. "log" or "iron_ore"), all types if blank
+	 * @param toolNeeded tool that is needed to mine the blocks (e.g. "pickaxe"), all tools if blank
+	 * @param radius     maximum distance to the origin, unlimited if not positive
+	 * @param maxResults maximum number of returned blocks
+	 * @return blocks ordered by distance to the origin
+	 */
+	public List<WorldContext.BlockData> findNearest(
+			BlockPos origin,
+			String blockName,
+			String toolNeeded,
+			int radius,
+			int maxResults
+	) {
+		List<Bucket> matchingBuckets = buckets.values().stream()
+				.filter(bucket -> blockName == null || blockName.isBlank() || bucket.metadata.name().contains(blockName.trim()))
+				.filter(bucket -> toolNeeded == null || toolNeeded.isBlank() || bucket.metadata.toolNeeded().equals(toolNeeded.trim()))
+				.toList();
+		long maxDistance = radius > 0 ? (long) radius * radius : Long.MAX_VALUE;
+		return findNearest(matchingBuckets, origin, maxDistance, maxResults).stream()
+				.map(Hit::toBlockData)
+				.toList();
+	}
+
+	private List<Hit> findNearest(List<Bucket> matchingBuckets, BlockPos origin, long maxDistance, int maxResults) {
+		if (maxResults <= 0) return List.of();
+		List<Candidate> candidates = new ArrayList<>();
+		for (Bucket bucket : matchingBuckets) {
+			for (Cell cell : bucket.sections) {
+				long boundDistance = cell.minDistance(origin);
+				if (boundDistance <= maxDistance) {
+					candidates.add(new Candidate(bucket, cell, boundDistance));
+				}
+			}
+		}
+		candidates.sort(Comparator.comparingLong(Candidate::boundDistance));
+
+		//max heap of the nearest hits, the root is the farthest of them
+		PriorityQueue<Hit> nearest = new PriorityQueue<>(Comparator.comparingLong(Hit::distance).reversed());
+		for (Candidate candidate : candidates) {
+			if (nearest.size() == maxResults && candidate.boundDistance() >= nearest.peek().distance()) break;
+			Cell cell = candidate.cell();
+			for (short index : cell.exposedBlocks()) {
+				int y = cell.baseY() + (index >> 8 & 15);
+				if (y < minY || y >= maxY) continue;
+				int x = cell.baseX() + (index & 15);
+				int z = cell.baseZ() + (index >> 4 & 15);
+				long distance = squaredDistance(origin, x, y, z);
+				if (distance > maxDistance) continue;
+				if (nearest.size() < maxResults) {
+					nearest.add(new Hit(candidate.bucket(), x, y, z, distance));
+				} else if (distance < nearest.peek().distance()) {
+					nearest.poll();
+					nearest.add(new Hit(candidate.bucket(), x, y, z, distance));
+				}
+			}
+		}
+		List<Hit> hits = new ArrayList<>(nearest);
+		hits.sort(Comparator.comparingLong(Hit::distance));
+		return hits;
+	}
+
+	private static long squaredDistance(BlockPos origin, int x, int y, int z) {
+		long dx = x - origin.getX();
+		long dy = y - origin.getY();
+		long dz = z - origin.getZ();
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Scanned section of the index.
+	 *
+	 * @param baseX lowest block x of the section
+	 * @param baseY lowest block y of the section
+	 * @param baseZ lowest block z of the section
+	 */
+	record IndexedSection(int baseX, int baseY, int baseZ, SectionSummary summary) {}
+
+	private static class Bucket {
+
+		private final BlockMetadata metadata;
+		private final List<Cell> sections = new ArrayList<>();
+		//all blocks of the type in the whole sections, not only the exposed ones in the y range
+		private int count;
+
+		private Bucket(BlockMetadata metadata) {
+			this.metadata = metadata;
+		}
+	}
+
+	private record Cell(int baseX, int baseY, int baseZ, short[] exposedBlocks) {
+
+		/**
+		 * @return squared distance of the origin to the nearest point of the section
+		 */
+		private long minDistance(BlockPos origin) {
+			long dx = axisDistance(origin.getX(), baseX);
+			long dy = axisDistance(origin.getY(), baseY);
+			long dz = axisDistance(origin.getZ(), baseZ);
+			return dx * dx + dy * dy + dz * dz;
+		}
+
+		private static int axisDistance(int coordinate, int base) {
+			if (coordinate < base) return base - coordinate;
+			return Math.max(0, coordinate - (base + 15));
+		}
+	}
+
+	private record Candidate(Bucket bucket, Cell cell, long boundDistance) {}
+
+	private record Hit(Bucket bucket, int x, int y, int z, long distance) {
+
+		private WorldContext.BlockData toBlockData() {
+			BlockMetadata metadata = bucket.metadata;
+			return new WorldContext.BlockData(
+					metadata.name(), new WorldContext.Position(x, y, z), metadata.miningLevel(), metadata.toolNeeded(), bucket.count);
+		}
+	}
+}
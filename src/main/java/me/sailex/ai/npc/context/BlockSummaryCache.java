@@ -0,0 +1,146 @@
+package me.sailex.ai.npc.context;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of section occupancies and summaries per world, shared by all NPCs.
+ * Entries are invalidated on block changes and chunk loads/unloads, so repeated scans of an unchanged area
+ * only merge the cached summaries. Entries are computed off the server thread from copied sections
+ * and are only cached if no invalidation happened since the sections were copied.
+ */
+public class BlockSummaryCache {
+
+	private static final Map<World, WorldCache> WORLD_CACHES = new ConcurrentHashMap<>();
+
+	private BlockSummaryCache() {}
+
+	/**
+	 * @return the cached summary of the section or null
+	 */
+	public static SectionSummary getSummary(World world, long sectionKey) {
+		return getCache(world).summaries.get(sectionKey);
+	}
+
+	/**
+	 * @return the cached occupancy of the section or null
+	 */
+	public static SectionOccupancy getOccupancy(World world, long sectionKey) {
+		return getCache(world).occupancies.get(sectionKey);
+	}
+
+	/**
+	 * @return current invalidation clock of the world, read when a section is copied to detect stale entries
+	 */
+	public static long getClock(World world) {
+		return getCache(world).clock.get();
+	}
+
+	/**
+	 * Caches the summary unless the section was invalidated after the given clock,
+	 * which must be the clock when the oldest of the section and its neighbours was copied.
+	 */
+	public static void putSummary(World world, long sectionKey, SectionSummary summary, long copiedAt) {
+		WorldCache cache = WORLD_CACHES.get(world);
+		if (cache == null) return;
+		cache.putIfUnchanged(cache.summaries, sectionKey, summary, copiedAt);
+	}
+
+	/**
+	 * Caches the occupancy unless the section was invalidated after the clock when it was copied.
+	 */
+	public static void putOccupancy(World world, long sectionKey, SectionOccupancy occupancy, long copiedAt) {
+		WorldCache cache = WORLD_CACHES.get(world);
+		if (cache == null) return;
+		cache.putIfUnchanged(cache.occupancies, sectionKey, occupancy, copiedAt);
+	}
+
+	/**
+	 * Invalidates the section of the block. If the block changed from/to air at the border of the section,
+	 * the summary of the adjacent section is invalidated too, because the exposure of its blocks changed.
+	 */
+	public static void invalidateBlock(World world, BlockPos pos, BlockState oldState, BlockState newState) {
+		WorldCache cache = WORLD_CACHES.get(world);
+		if (cache == null) return;
+		int sectionX = ChunkSectionPos.getSectionCoord(pos.getX());
+		int sectionY = ChunkSectionPos.getSectionCoord(pos.getY());
+		int sectionZ = ChunkSectionPos.getSectionCoord(pos.getZ());
+		long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+		if (oldState.isAir() == newState.isAir()) {
+			cache.invalidateSummary(key);
+			return;
+		}
+
+		cache.invalidateSection(key);
+		int x = pos.getX() & 15;
+		int y = pos.getY() & 15;
+		int z = pos.getZ() & 15;
+		if (x == 0) cache.invalidateSummary(ChunkSectionPos.asLong(sectionX - 1, sectionY, sectionZ));
+		if (x == 15) cache.invalidateSummary(ChunkSectionPos.asLong(sectionX + 1, sectionY, sectionZ));
+		if (y == 0) cache.invalidateSummary(ChunkSectionPos.asLong(sectionX, sectionY - 1, sectionZ));
+		if (y == 15) cache.invalidateSummary(ChunkSectionPos.asLong(sectionX, sectionY + 1, sectionZ));
+		if (z == 0) cache.invalidateSummary(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ - 1));
+		if (z == 15) cache.invalidateSummary(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ + 1));
+	}
+
+	/**
+	 * Invalidates all sections of a loaded/unloaded chunk and the summaries of the horizontal neighbour chunks.
+	 */
+	public static void invalidateChunk(World world, ChunkPos chunkPos) {
+		WorldCache cache = WORLD_CACHES.get(world);
+		if (cache == null) return;
+		int bottomSection = world.getBottomSectionCoord();
+		int topSection = bottomSection + world.countVerticalSections();
+		for (int sectionY = bottomSection; sectionY < topSection; sectionY++) {
+			cache.invalidateSection(ChunkSectionPos.asLong(chunkPos.x, sectionY, chunkPos.z));
+			cache.invalidateSummary(ChunkSectionPos.asLong(chunkPos.x - 1, sectionY, chunkPos.z));
+			cache.invalidateSummary(ChunkSectionPos.asLong(chunkPos.x + 1, sectionY, chunkPos.z));
+			cache.invalidateSummary(ChunkSectionPos.asLong(chunkPos.x, sectionY, chunkPos.z - 1));
+			cache.invalidateSummary(ChunkSectionPos.asLong(chunkPos.x, sectionY, chunkPos.z + 1));
+		}
+	}
+
+	public static void removeWorld(World world) {
+		WORLD_CACHES.remove(world);
+	}
+
+	private static WorldCache getCache(World world) {
+		return WORLD_CACHES.computeIfAbsent(world, key -> new WorldCache());
+	}
+
+	private static class WorldCache {
+
+		private final Map<Long, SectionOccupancy> occupancies = new ConcurrentHashMap<>();
+		private final Map<Long, SectionSummary> summaries = new ConcurrentHashMap<>();
+		//clock of the last invalidation of every invalidated section, a block change only touches its own section(s).
+		//Kept until the world is removed, so an entry computed before an unload is never mistaken as current
+		private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+		//incremented on every invalidation
+		private final AtomicLong clock = new AtomicLong();
+
+		private void invalidateSection(long key) {
+			versions.put(key, clock.incrementAndGet());
+			occupancies.remove(key);
+			summaries.remove(key);
+		}
+
+		private void invalidateSummary(long key) {
+			versions.put(key, clock.incrementAndGet());
+			summaries.remove(key);
+		}
+
+		private <T> void putIfUnchanged(Map<Long, T> entries, long key, T value, long copiedAt) {
+			entries.put(key, value);
+			if (versions.getOrDefault(key, 0L) > copiedAt) {
+				entries.remove(key, value);
+			}
+		}
+	}
+}
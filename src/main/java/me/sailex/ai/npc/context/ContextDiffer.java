@@ -0,0 +1,276 @@
+package me.sailex.ai.npc.context;
+
+import lombok.Getter;
+import me.sailex.ai.npc.context.format.IContextFormatter;
+import me.sailex.ai.npc.context.format.VerboseContextFormatter;
+import me.sailex.ai.npc.model.context.WorldContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Formats the world context of a NPC as the changes since the model was last shown it.
+ * The first result and every {@value #FULL_REFRESH_INTERVAL}th result afterward is formatted in full.
+ * The llm clients send the messages of the last {@value #VISIBLE_TURNS} turns (including the tool results),
+ * so a section is formatted in full again once its last full result is in a turn the model no longer sees.
+ * Every turn starts with {@link #startTurn()}, which binds the differ to the event thread of the NPC
+ * for the function calls of the turn.
+ * Not thread-safe, used by the event thread of the NPC.
+ */
+public class ContextDiffer {
+
+	private static final ThreadLocal<ContextDiffer> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * Number of turns (including the current one) whose messages the llm clients send with a request.
+	 */
+	public static final int VISIBLE_TURNS = 4;
+	private static final int FULL_REFRESH_INTERVAL = 5;
+	private static final String NO_CHANGES = "- no changes since the last check";
+
+	@Getter
+	private final IContextFormatter formatter;
+	private final Section<WorldContext.NPCState> npcState = new Section<>();
+	private final Section<WorldContext.InventoryState> inventory = new Section<>();
+	private final Section<List<WorldContext.BlockData>> blocks = new Section<>();
+	private final Section<List<WorldContext.EntityData>> entities = new Section<>();
+	private int turn;
+
+	/**
+	 * @param formatter formats the full context
+	 */
+	public ContextDiffer(IContextFormatter formatter) {
+		this.formatter = formatter;
+	}
+
+	/**
+	 * Starts the next turn and binds the differ to the current thread until the returned turn is closed.
+	 */
+	public Turn startTurn() {
+		turn++;
+		ContextDiffer previous = CURRENT.get();
+		CURRENT.set(this);
+		return () -> {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		};
+	}
+
+	/**
+	 * @return the differ of the NPC whose turn is handled on the current thread,
+	 * outside a turn a new differ that formats everything in full
+	 */
+	public static ContextDiffer current() {
+		ContextDiffer differ = CURRENT.get();
+		return differ != null ? differ : new ContextDiffer(new VerboseContextFormatter());
+	}
+
+	/**
+	 * Forgets what the model was shown, so the next results are formatted in full.
+	 * Called by the llm clients if the messages of the turn could not be kept.
+	 */
+	public void reset() {
+		npcState.reset();
+		inventory.reset();
+		blocks.reset();
+		entities.reset();
+	}
+
+	public String formatNpcState(WorldContext.NPCState state) {
+		return npcState.format(turn, state, () -> formatter.formatNPCState(state), this::diffNpcState);
+	}
+
+	public String formatInventory(WorldContext.InventoryState inventoryState) {
+		return inventory.format(turn, inventoryState, () -> formatter.formatInventory(inventoryState), ContextDiffer::diffInventory);
+	}
+
+	/**
+	 * @param origin position of the NPC
+	 */
+	public String formatBlocks(List<WorldContext.BlockData> nearbyBlocks, WorldContext.Position origin) {
+		return blocks.format(turn, nearbyBlocks, () -> formatter.formatBlocks(nearbyBlocks, origin),
+				(last, current) -> diffBlocks(last, current, origin));
+	}
+
+	/**
+	 * @param origin position of the NPC
+	 */
+	public String formatEntities(List<WorldContext.EntityData> nearbyEntities, WorldContext.Position origin) {
+		return entities.format(turn, nearbyEntities, () -> formatter.formatEntities(nearbyEntities, origin),
+				(last, current) -> diffEntities(last, current, origin));
+	}
+
+	private List<String> diffNpcState(WorldContext.NPCState last, WorldContext.NPCState current) {
+		List<String> changes = new ArrayList<>();
+		addChange(changes, "your position",
+				formatter.formatPosition(last.position(), null), formatter.formatPosition(current.position(), null));
+		addChange(changes, "health", last.health(), current.health());
+		addChange(changes, "hunger", last.food(), current.food());
+		addChange(changes, "on Ground", last.onGround(), current.onGround());
+		addChange(changes, "touching water", last.inWater(), current.inWater());
+		addChange(changes, "biome", last.biome(), current.biome());
+		return changes;
+	}
+
+	private static List<String> diffInventory(WorldContext.InventoryState last, WorldContext.InventoryState current) {
+		List<String> changes = new ArrayList<>();
+		diffItems(changes, "main hand", last.mainHandItem(), current.mainHandItem());
+		diffItems(changes, "armour", last.armor(), current.armor());
+		diffItems(changes, "slot", concat(last.hotbar(), last.mainInventory()), concat(current.hotbar(), current.mainInventory()));
+		return changes;
+	}
+
+	private static void diffItems(
+			List<String> changes,
+			String location,
+			List<WorldContext.ItemData> lastItems,
+			List<WorldContext.ItemData> currentItems
+	) {
+		//items without a slot (hand, armour) are keyed by their type
+		Function<WorldContext.ItemData, String> key = item -> item.slot() >= 0 ? String.valueOf(item.slot()) : item.type();
+		Map<String, WorldContext.ItemData> last = toMap(lastItems, key);
+		Map<String, WorldContext.ItemData> current = toMap(currentItems, key);
+		current.forEach((itemKey, item) -> {
+			String itemLocation = item.slot() >= 0 ? location + " " + item.slot() : location;
+			WorldContext.ItemData lastItem = last.get(itemKey);
+			if (lastItem == null || !lastItem.type().equals(item.type())) {
+				changes.add(String.format("- +%s %s in %s", item.count(), item.type(), itemLocation));
+			} else if (lastItem.count() != item.count()) {
+				changes.add(String.format("- %+d %s in %s (now %s)",
+						item.count() - lastItem.count(), item.type(), itemLocation, item.count()));
+			} else if (lastItem.damage() != item.damage()) {
+				changes.add(String.format("- %s in %s damaged to %s", item.type(), itemLocation, item.damage()));
+			}
+			if (lastItem != null && !lastItem.type().equals(item.type())) {
+				changes.add(String.format("- -%s %s from %s", lastItem.count(), lastItem.type(), itemLocation));
+			}
+		});
+		last.forEach((itemKey, lastItem) -> {
+			if (!current.containsKey(itemKey)) {
+				String itemLocation = lastItem.slot() >= 0 ? location + " " + lastItem.slot() : location;
+				changes.add(String.format("- -%s %s from %s", lastItem.count(), lastItem.type(), itemLocation));
+			}
+		});
+	}
+
+	private List<String> diffBlocks(
+			List<WorldContext.BlockData> lastBlocks,
+			List<WorldContext.BlockData> currentBlocks,
+			WorldContext.Position origin
+	) {
+		List<String> changes = new ArrayList<>();
+		Map<String, WorldContext.BlockData> last = toMap(lastBlocks, WorldContext.BlockData::type);
+		Map<String, WorldContext.BlockData> current = toMap(currentBlocks, WorldContext.BlockData::type);
+		List<WorldContext.BlockData> newBlocks = new ArrayList<>();
+		current.forEach((type, block) -> {
+			WorldContext.BlockData lastBlock = last.get(type);
+			if (lastBlock == null) {
+				newBlocks.add(block);
+			} else if (!lastBlock.position().equals(block.position()) || lastBlock.count() != block.count()) {
+				changes.add(String.format("- nearest %s (%s in scanned area) is now at %s",
+						type, block.count(), formatter.formatPosition(block.position(), origin)));
+			}
+		});
+		last.keySet().stream()
+				.filter(type -> !current.containsKey(type))
+				.forEach(type -> changes.add(String.format("- %s no longer nearby", type)));
+		if (!newBlocks.isEmpty()) {
+			changes.add("- new blocks:\n" + formatter.formatBlocks(newBlocks, origin).strip());
+		}
+		return changes;
+	}
+
+	private List<String> diffEntities(
+			List<WorldContext.EntityData> lastEntities,
+			List<WorldContext.EntityData> currentEntities,
+			WorldContext.Position origin
+	) {
+		List<String> changes = new ArrayList<>();
+		Map<String, WorldContext.EntityData> last = toMap(lastEntities, WorldContext.EntityData::id);
+		Map<String, WorldContext.EntityData> current = toMap(currentEntities, WorldContext.EntityData::id);
+		List<WorldContext.EntityData> newEntities = new ArrayList<>();
+		current.forEach((id, entity) -> {
+			WorldContext.EntityData lastEntity = last.get(id);
+			if (lastEntity == null) {
+				newEntities.add(entity);
+			} else if (!lastEntity.position().equals(entity.position())) {
+				changes.add(String.format("- %s %s moved to %s",
+						entity.name(), id, formatter.formatPosition(entity.position(), origin)));
+			}
+		});
+		last.forEach((id, lastEntity) -> {
+			if (!current.containsKey(id)) {
+				changes.add(String.format("- %s %s is gone", lastEntity.name(), id));
+			}
+		});
+		if (!newEntities.isEmpty()) {
+			changes.add("- new entities:\n" + formatter.formatEntities(newEntities, origin).strip());
+		}
+		return changes;
+	}
+
+	private static void addChange(List<String> changes, String name, Object last, Object current) {
+		if (!Objects.equals(last, current)) {
+			changes.add(String.format("- %s: %s (was %s)", name, current, last));
+		}
+	}
+
+	private static <T> Map<String, T> toMap(List<T> values, Function<T, String> key) {
+		Map<String, T> map = new LinkedHashMap<>();
+		values.forEach(value -> map.putIfAbsent(key.apply(value), value));
+		return map;
+	}
+
+	private static <T> List<T> concat(List<T> first, List<T> second) {
+		List<T> result = new ArrayList<>(first);
+		result.addAll(second);
+		return result;
+	}
+
+	/**
+	 * Turn of a NPC during which the differ is bound to the thread.
+	 */
+	@FunctionalInterface
+	public interface Turn extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	/**
+	 * Context section with the value that was last shown to the model.
+	 */
+	private static class Section<T> {
+
+		private T lastShown;
+		private int diffsSinceRefresh;
+		//turn of the last full result, the diffs are based on it
+		private int refreshTurn;
+
+		private String format(int turn, T current, Supplier<String> fullFormatter, BiFunction<T, T, List<String>> differ) {
+			T last = lastShown;
+			lastShown = current;
+			if (last == null || diffsSinceRefresh >= FULL_REFRESH_INTERVAL - 1 || turn - refreshTurn >= VISIBLE_TURNS) {
+				diffsSinceRefresh = 0;
+				refreshTurn = turn;
+				return fullFormatter.get();
+			}
+			diffsSinceRefresh++;
+			List<String> changes = differ.apply(last, current);
+			return (changes.isEmpty() ? NO_CHANGES : String.join("\n", changes)) + "\n";
+		}
+
+		private void reset() {
+			lastShown = null;
+			diffsSinceRefresh = 0;
+		}
+	}
+}
@@ -1,34 +1,28 @@
 package me.sailex.ai.npc.context;
 
-import static me.sailex.ai.npc.util.WorldUtil.getMiningLevel;
-import static me.sailex.ai.npc.util.WorldUtil.getToolNeeded;
-
 import me.sailex.ai.npc.model.context.WorldContext;
 import java.util.*;
-import net.minecraft.block.BlockState;
+import java.util.function.Supplier;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.item.ItemStack;
 import net.minecraft.registry.RegistryKey;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.ChunkPos;
-import net.minecraft.util.math.Direction;
-import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * Generates the context for the LLM based on the players (npcs) world state.
+ * The world state is captured into immutable records on the server thread, everything else runs on the calling thread.
  */
 public class ContextGenerator {
 
 	private ContextGenerator() {}
 
 	private static final Logger LOGGER = LogManager.getLogger(ContextGenerator.class);
-	private static final int CHUNK_SCAN_RADIUS = 2;
-	private static final int VERTICAL_SCAN_RANGE = 16;
-	private static final int ENTITY_SCAN_RADIUS = 24;
+	//blocks that are formatted at most into the prompt
+	private static final int MAX_FOUND_BLOCKS = 15;
 
 	/**
 	 * Creates a world context of entities, blocks, and inventory for the NPC.
@@ -45,13 +39,18 @@ public class ContextGenerator {
 	}
 
 	public static WorldContext.NPCState getNpcState(ServerPlayerEntity npcEntity) {
-		return new WorldContext.NPCState(
+		return onServerThread(npcEntity, () -> new WorldContext.NPCState(
 				new WorldContext.Position((int) npcEntity.getX(), (int) npcEntity.getY(), (int) npcEntity.getZ()),
 				npcEntity.getHealth(),
 				npcEntity.getHungerManager().getFoodLevel(),
 				npcEntity.isOnGround(),
 				npcEntity.isTouchingWater(),
-				getBiome(npcEntity));
+				getBiome(npcEntity)));
+	}
+
+	public static WorldContext.Position getPosition(ServerPlayerEntity npcEntity) {
+		return onServerThread(npcEntity, () -> new WorldContext.Position(
+				(int) npcEntity.getX(), (int) npcEntity.getY(), (int) npcEntity.getZ()));
 	}
 
 	private static String getBiome(ServerPlayerEntity npcEntity) {
@@ -62,81 +61,55 @@ public class ContextGenerator {
 	}
 
 	public static List<WorldContext.BlockData> scanNearbyBlocks(ServerPlayerEntity npcEntity) {
-		Map<String, WorldContext.BlockData> nearestBlocks = new HashMap<>();
-		ChunkPos npcChunk = npcEntity.getChunkPos();
-
-		for (int chunkX = -CHUNK_SCAN_RADIUS; chunkX <= CHUNK_SCAN_RADIUS; chunkX++) {
-			for (int chunkZ = -CHUNK_SCAN_RADIUS; chunkZ <= CHUNK_SCAN_RADIUS; chunkZ++) {
-				scanChunk(new ChunkPos(npcChunk.x + chunkX, npcChunk.z + chunkZ), nearestBlocks, npcEntity);
-			}
-		}
-		return new ArrayList<>(nearestBlocks.values());
+		return BlockScanScheduler.getNearbyBlocks(npcEntity);
 	}
 
-	private static void scanChunk(ChunkPos chunk, Map<String, WorldContext.BlockData> nearestBlocks, ServerPlayerEntity npcEntity) {
-		World world = npcEntity.getWorld();
-		BlockPos.Mutable pos = new BlockPos.Mutable();
-		int baseY = Math.max(0, npcEntity.getBlockPos().getY() - VERTICAL_SCAN_RANGE);
-		int maxY = Math.min(world.getHeight(), npcEntity.getBlockPos().getY() + VERTICAL_SCAN_RANGE);
-
-		for (int x = 0; x < 16; x++) {
-			for (int z = 0; z < 16; z++) {
-				for (int y = baseY; y < maxY; y++) {
-					pos.set(chunk.getStartX() + x, y, chunk.getStartZ() + z);
-					if (isAccessible(pos, world)) {
-						BlockState blockState = world.getBlockState(pos);
-						String blockType =
-								blockState.getBlock().getName().getString().toLowerCase();
-						if (blockType.contains("air")) continue;
-						WorldContext.BlockData currentBlockData = buildBlockData(blockType, blockState, pos);
-
-						if (!nearestBlocks.containsKey(blockType)
-								|| isCloser(pos, nearestBlocks.get(blockType).position(), npcEntity)) {
-							nearestBlocks.put(blockType, currentBlockData);
-						}
-					}
-				}
-			}
-		}
-	}
-
-	private static boolean isAccessible(BlockPos pos, World world) {
-		for (Direction dir : Direction.values()) {
-			if (world.getBlockState(pos.offset(dir)).isAir()) {
-				return true;
-			}
-		}
-		return false;
+	/**
+	 * Finds the blocks of a type nearest to the NPC.
+	 *
+	 * @see BlockSpatialIndex#findNearest(BlockPos, String, String, int, int)
+	 */
+	public static List<WorldContext.BlockData> findBlocks(
+			ServerPlayerEntity npcEntity,
+			String blockName,
+			String toolNeeded,
+			int radius,
+			int maxResults
+	) {
+		BlockPos origin = onServerThread(npcEntity, npcEntity::getBlockPos);
+		return BlockScanScheduler.getBlockIndex(npcEntity)
+				.findNearest(origin, blockName, toolNeeded, radius, Math.min(maxResults, MAX_FOUND_BLOCKS));
 	}
 
-	private static boolean isCloser(BlockPos pos, WorldContext.Position otherPos, ServerPlayerEntity npcEntity) {
-		double currentDistance = npcEntity.getBlockPos().getSquaredDistance(pos);
-		double otherDistance =
-				npcEntity.getBlockPos().getSquaredDistance(new BlockPos(otherPos.x(), otherPos.y(), otherPos.y()));
-		return currentDistance < otherDistance;
+	public static List<WorldContext.EntityData> scanNearbyEntities(ServerPlayerEntity npcEntity) {
+		return scanNearbyEntities(npcEntity, EnumSet.allOf(EntityCategory.class));
 	}
 
-	public static List<WorldContext.EntityData> scanNearbyEntities(ServerPlayerEntity npcEntity) {
-		return npcEntity.getWorld()
-				.getOtherEntities(npcEntity, npcEntity.getBoundingBox().expand(ENTITY_SCAN_RADIUS), entity -> true)
-				.stream()
-				.map(entity -> new WorldContext.EntityData(
-						String.valueOf(entity.getId()),
-						entity.getName().getString(),
-						new WorldContext.Position((int) entity.getX(), (int) entity.getY(), (int) entity.getZ())))
-				.toList();
+	/**
+	 * @param categories categories of the returned entities
+	 */
+	public static List<WorldContext.EntityData> scanNearbyEntities(ServerPlayerEntity npcEntity, Set<EntityCategory> categories) {
+		return EntityTracker.getNearbyEntities(npcEntity, categories);
 	}
 
 	public static WorldContext.InventoryState getInventoryState(ServerPlayerEntity npcEntity) {
 		PlayerInventory inventory = npcEntity.getInventory();
 
-		return new WorldContext.InventoryState(
+		return onServerThread(npcEntity, () -> new WorldContext.InventoryState(
 				// Hotbar
 				getInventoryItemsInRange(inventory, 0, 9),
 				// Main inventory
 				getInventoryItemsInRange(inventory, 9, 36),
 				getArmorItems(inventory),
-				getInventoryItemsInHand(inventory));
+				getInventoryItemsInHand(inventory)));
+	}
+
+	/**
+	 * Runs the capture on the server thread (batched with the queries of the other NPCs) and waits for it,
+	 * so the world isn't read while the server ticks.
+	 */
+	private static <T> T onServerThread(ServerPlayerEntity npcEntity, Supplier<T> capture) {
+		return ServerQueryBridge.query(npcEntity.getServer(), capture).join();
 	}
 
 	private static List<WorldContext.ItemData> getInventoryItemsInHand(PlayerInventory inventory) {
@@ -176,12 +149,4 @@ public class ContextGenerator {
 		String translationKey = stack.getItem().getTranslationKey();
 		return translationKey.substring(translationKey.lastIndexOf(".") + 1);
 	}
-
-	private static WorldContext.BlockData buildBlockData(String blockType, BlockState blockState, BlockPos pos) {
-		return new WorldContext.BlockData(
-				blockType,
-				new WorldContext.Position(pos.getX(), pos.getY(), pos.getZ()),
-				getMiningLevel(blockState),
-				getToolNeeded(blockState));
-	}
 }
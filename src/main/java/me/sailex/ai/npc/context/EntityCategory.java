@@ -0,0 +1,57 @@
+package me.sailex.ai.npc.context;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.entity.mob.Monster;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.entity.player.PlayerEntity;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Category of entities that the nearby entities of a NPC can be filtered by.
+ */
+public enum EntityCategory {
+	PLAYER,
+	HOSTILE,
+	CREATURE,
+	ITEM,
+	OTHER;
+
+	public static EntityCategory of(Entity entity) {
+		if (entity instanceof PlayerEntity) {
+			return PLAYER;
+		} else if (entity instanceof Monster) {
+			return HOSTILE;
+		} else if (entity instanceof MobEntity) {
+			return CREATURE;
+		} else if (entity instanceof ItemEntity) {
+			return ITEM;
+		} else {
+			return OTHER;
+		}
+	}
+
+	/**
+	 * Parses the category names (e.g. "hostile,item"), unknown names are ignored.
+	 *
+	 * @return the parsed categories or all categories if none is given
+	 */
+	public static Set<EntityCategory> parse(String categories) {
+		if (categories == null || categories.isBlank()) return EnumSet.allOf(EntityCategory.class);
+		Set<EntityCategory> parsed = EnumSet.noneOf(EntityCategory.class);
+		Arrays.stream(categories.split(","))
+				.map(name -> name.trim().toUpperCase(Locale.ROOT))
+				.forEach(name -> Arrays.stream(values())
+						.filter(category -> category.name().equals(name))
+						.forEach(parsed::add));
+		return parsed.isEmpty() ? EnumSet.allOf(EntityCategory.class) : parsed;
+	}
+
+	public String getName() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+}
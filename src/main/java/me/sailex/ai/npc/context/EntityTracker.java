@@ -0,0 +1,225 @@
+package me.sailex.ai.npc.context;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import me.sailex.ai.npc.model.context.WorldContext;
+import me.sailex.ai.npc.tick.NPCTickScheduler;
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the entities around the NPCs incrementally.
+ * Every NPC keeps a set of candidate entities in its tracking radius plus a margin. Loaded entities are added to and
+ * unloaded entities are removed from the sets of the NPCs whose candidate area covers their chunk, so a load/unload
+ * only costs a lookup of the chunk. The positions are sampled every {@value #SAMPLE_PERIOD_TICKS} ticks (or after a
+ * load/unload) and published for the context. The candidates are rebuilt with a box scan every
+ * {@value #REBUILD_PERIOD_TICKS} ticks or when the NPC left the middle of its candidate area, to catch entities
+ * that walked into the margin.
+ */
+public class EntityTracker {
+
+	private static final int TRACKING_RADIUS = 24;
+	//entities that move into the tracking radius between two rebuilds are already candidates
+	private static final int CANDIDATE_MARGIN = 16;
+	private static final int SAMPLE_PERIOD_TICKS = 10;
+	private static final int REBUILD_PERIOD_TICKS = 100;
+
+	private static final Map<UUID, TrackedNpc> NPCS = new ConcurrentHashMap<>();
+	//NPCs by the chunks their candidate area covers, per world. Only accessed on the server thread
+	private static final Map<World, Long2ObjectOpenHashMap<List<TrackedNpc>>> NPCS_BY_CHUNK = new HashMap<>();
+
+	private EntityTracker() {}
+
+	public static void onEntityLoad(Entity entity, World world) {
+		List<TrackedNpc> trackedNpcs = getTrackedNpcs(entity, world);
+		if (trackedNpcs != null) trackedNpcs.forEach(trackedNpc -> trackedNpc.onLoad(entity));
+	}
+
+	public static void onEntityUnload(Entity entity, World world) {
+		List<TrackedNpc> trackedNpcs = getTrackedNpcs(entity, world);
+		if (trackedNpcs != null) trackedNpcs.forEach(trackedNpc -> trackedNpc.onUnload(entity));
+	}
+
+	/**
+	 * Gets the entities around the NPC ordered by distance, as of the last sample.
+	 * The first call starts tracking the NPC on the server thread.
+	 *
+	 * @param categories categories of the returned entities
+	 */
+	public static List<WorldContext.EntityData> getNearbyEntities(ServerPlayerEntity npcEntity, Set<EntityCategory> categories) {
+		TrackedNpc trackedNpc = NPCS.get(npcEntity.getUuid());
+		if (trackedNpc == null) {
+			trackedNpc = ServerQueryBridge.query(npcEntity.getServer(), () -> track(npcEntity)).join();
+		}
+		return trackedNpc.nearbyEntities.stream()
+				.filter(nearbyEntity -> categories.contains(nearbyEntity.category()))
+				.map(NearbyEntity::data)
+				.toList();
+	}
+
+	/**
+	 * Stops tracking the entities around the NPC, its tick task removes it from the chunk index.
+	 */
+	public static void untrack(ServerPlayerEntity npcEntity) {
+		TrackedNpc trackedNpc = NPCS.remove(npcEntity.getUuid());
+		if (trackedNpc != null) trackedNpc.untracked = true;
+	}
+
+	/**
+	 * Forgets all tracked NPCs, called when the server stopped.
+	 */
+	public static void clear() {
+		NPCS.clear();
+		NPCS_BY_CHUNK.clear();
+	}
+
+	private static TrackedNpc track(ServerPlayerEntity npcEntity) {
+		return NPCS.computeIfAbsent(npcEntity.getUuid(), uuid -> {
+			TrackedNpc trackedNpc = new TrackedNpc(npcEntity);
+			MinecraftServer server = npcEntity.getServer();
+			trackedNpc.rebuild(server != null ? server.getTicks() : 0);
+			NPCTickScheduler.schedule(trackedNpc::tick);
+			return trackedNpc;
+		});
+	}
+
+	private static List<TrackedNpc> getTrackedNpcs(Entity entity, World world) {
+		Long2ObjectOpenHashMap<List<TrackedNpc>> npcsByChunk = NPCS_BY_CHUNK.get(world);
+		if (npcsByChunk == null) return null;
+		return npcsByChunk.get(ChunkPos.toLong(entity.getBlockX() >> 4, entity.getBlockZ() >> 4));
+	}
+
+	private static class TrackedNpc {
+
+		private final ServerPlayerEntity npcEntity;
+		//only accessed on the server thread
+		private final Set<Entity> candidates = new HashSet<>();
+		private final LongArrayList indexedChunks = new LongArrayList();
+		private World indexedWorld;
+		private Box candidateArea;
+		private int rebuiltTick;
+		private int sampledTick;
+		private boolean changed;
+		private volatile boolean untracked;
+		private volatile List<NearbyEntity> nearbyEntities = List.of();
+
+		private TrackedNpc(ServerPlayerEntity npcEntity) {
+			this.npcEntity = npcEntity;
+		}
+
+		/**
+		 * Rebuilds or samples the candidates if due.
+		 *
+		 * @return false if the NPC is no longer tracked
+		 */
+		private boolean tick(MinecraftServer server) {
+			if (untracked || npcEntity.isRemoved()) {
+				NPCS.remove(npcEntity.getUuid(), this);
+				unindex();
+				candidates.clear();
+				nearbyEntities = List.of();
+				return false;
+			}
+			int ticks = server.getTicks();
+			if (npcEntity.getWorld() != indexedWorld || ticks - rebuiltTick >= REBUILD_PERIOD_TICKS
+					|| !candidateArea.contract(CANDIDATE_MARGIN / 2.0).contains(npcEntity.getPos())) {
+				rebuild(ticks);
+			} else if (changed || ticks - sampledTick >= SAMPLE_PERIOD_TICKS) {
+				sample(ticks);
+			}
+			return true;
+		}
+
+		private void onLoad(Entity entity) {
+			if (entity != npcEntity && candidateArea.intersects(entity.getBoundingBox())) {
+				changed |= candidates.add(entity);
+			}
+		}
+
+		private void onUnload(Entity entity) {
+			changed |= candidates.remove(entity);
+		}
+
+		/**
+		 * Scans the candidates around the NPC and indexes the chunks of the candidate area.
+		 */
+		private void rebuild(int ticks) {
+			unindex();
+			candidateArea = npcEntity.getBoundingBox().expand(TRACKING_RADIUS + CANDIDATE_MARGIN);
+			candidates.clear();
+			candidates.addAll(npcEntity.getWorld().getOtherEntities(npcEntity, candidateArea));
+			index();
+			rebuiltTick = ticks;
+			sample(ticks);
+		}
+
+		/**
+		 * Publishes the candidates in the tracking radius ordered by distance.
+		 */
+		private void sample(int ticks) {
+			candidates.removeIf(Entity::isRemoved);
+			Box trackingArea = npcEntity.getBoundingBox().expand(TRACKING_RADIUS);
+			nearbyEntities = candidates.stream()
+					.filter(entity -> trackingArea.intersects(entity.getBoundingBox()))
+					.sorted(Comparator.comparingDouble(npcEntity::squaredDistanceTo))
+					.map(TrackedNpc::toNearbyEntity)
+					.toList();
+			changed = false;
+			sampledTick = ticks;
+		}
+
+		private void index() {
+			indexedWorld = npcEntity.getWorld();
+			Long2ObjectOpenHashMap<List<TrackedNpc>> npcsByChunk =
+					NPCS_BY_CHUNK.computeIfAbsent(indexedWorld, world -> new Long2ObjectOpenHashMap<>());
+			for (int chunkX = (int) Math.floor(candidateArea.minX) >> 4; chunkX <= (int) Math.floor(candidateArea.maxX) >> 4; chunkX++) {
+				for (int chunkZ = (int) Math.floor(candidateArea.minZ) >> 4; chunkZ <= (int) Math.floor(candidateArea.maxZ) >> 4; chunkZ++) {
+					long chunk = ChunkPos.toLong(chunkX, chunkZ);
+					npcsByChunk.computeIfAbsent(chunk, key -> new ArrayList<>()).add(this);
+					indexedChunks.add(chunk);
+				}
+			}
+		}
+
+		private void unindex() {
+			Long2ObjectOpenHashMap<List<TrackedNpc>> npcsByChunk = NPCS_BY_CHUNK.get(indexedWorld);
+			if (npcsByChunk != null) {
+				for (int i = 0; i < indexedChunks.size(); i++) {
+					long chunk = indexedChunks.getLong(i);
+					List<TrackedNpc> trackedNpcs = npcsByChunk.get(chunk);
+					if (trackedNpcs == null) continue;
+					trackedNpcs.remove(this);
+					if (trackedNpcs.isEmpty()) npcsByChunk.remove(chunk);
+				}
+				if (npcsByChunk.isEmpty()) NPCS_BY_CHUNK.remove(indexedWorld);
+			}
+			indexedChunks.clear();
+			indexedWorld = null;
+		}
+
+		private static NearbyEntity toNearbyEntity(Entity entity) {
+			EntityCategory category = EntityCategory.of(entity);
+			return new NearbyEntity(category, new WorldContext.EntityData(
+					String.valueOf(entity.getId()),
+					entity.getName().getString(),
+					new WorldContext.Position((int) entity.getX(), (int) entity.getY(), (int) entity.getZ()),
+					category.getName()));
+		}
+	}
+
+	private record NearbyEntity(EntityCategory category, WorldContext.EntityData data) {}
+}
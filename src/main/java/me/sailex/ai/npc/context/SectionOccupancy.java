@@ -0,0 +1,78 @@
+package me.sailex.ai.npc.context;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.world.chunk.PalettedContainer;
+
+/**
+ * Air occupancy of a 16x16x16 chunk section, computed from (a copy of) the block states of the section.
+ * Sections that contain only air or no air at all are classified by their palette without reading the blocks.
+ */
+public class SectionOccupancy {
+
+	public static final SectionOccupancy EMPTY = new SectionOccupancy(Kind.EMPTY, null);
+	public static final SectionOccupancy SOLID = new SectionOccupancy(Kind.SOLID, null);
+
+	private final Kind kind;
+	//one bit per block (index y << 8 | z << 4 | x), set if the block is air. only for mixed sections
+	private final long[] airBits;
+
+	private SectionOccupancy(Kind kind, long[] airBits) {
+		this.kind = kind;
+		this.airBits = airBits;
+	}
+
+	public static SectionOccupancy of(PalettedContainer<BlockState> blockStates) {
+		if (!blockStates.hasAny(state -> !state.isAir())) {
+			return EMPTY;
+		}
+		if (!blockStates.hasAny(BlockState::isAir)) {
+			return SOLID;
+		}
+		long[] airBits = new long[64];
+		for (int y = 0; y < 16; y++) {
+			for (int z = 0; z < 16; z++) {
+				for (int x = 0; x < 16; x++) {
+					if (blockStates.get(x, y, z).isAir()) {
+						int index = index(x, y, z);
+						airBits[index >>> 6] |= 1L << index;
+					}
+				}
+			}
+		}
+		return new SectionOccupancy(Kind.MIXED, airBits);
+	}
+
+	/**
+	 * @param x local x coordinate in the section (0-15)
+	 * @param y local y coordinate in the section (0-15)
+	 * @param z local z coordinate in the section (0-15)
+	 */
+	public boolean isAir(int x, int y, int z) {
+		return switch (kind) {
+			case EMPTY -> true;
+			case SOLID -> false;
+			case MIXED -> {
+				int index = index(x, y, z);
+				yield (airBits[index >>> 6] & (1L << index)) != 0;
+			}
+		};
+	}
+
+	public boolean isEmpty() {
+		return kind == Kind.EMPTY;
+	}
+
+	public boolean isSolid() {
+		return kind == Kind.SOLID;
+	}
+
+	private static int index(int x, int y, int z) {
+		return y << 8 | z << 4 | x;
+	}
+
+	private enum Kind {
+		EMPTY,
+		SOLID,
+		MIXED
+	}
+}
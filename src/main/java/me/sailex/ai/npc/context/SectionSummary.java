@@ -0,0 +1,134 @@
+package me.sailex.ai.npc.context;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import net.minecraft.block.BlockState;
+import net.minecraft.registry.Registries;
+import net.minecraft.world.chunk.PalettedContainer;
+
+/**
+ * Summary of a chunk section: the number of blocks and the exposed blocks (next to air) per block type.
+ * Exposure at the borders of the section depends on the occupancy of the six neighbouring sections.
+ */
+public class SectionSummary {
+
+	public static final SectionSummary EMPTY = new SectionSummary(new int[0], new BlockState[0], new int[0], new short[0][]);
+
+	//raw block ids of the block types in the section
+	private final int[] blockIds;
+	//one state per block type, used for the mining level/tool of the type
+	private final BlockState[] states;
+	private final int[] counts;
+	//local indices (y << 8 | z << 4 | x) of the exposed blocks per block type
+	private final short[][] exposedBlocks;
+
+	private SectionSummary(int[] blockIds, BlockState[] states, int[] counts, short[][] exposedBlocks) {
+		this.blockIds = blockIds;
+		this.states = states;
+		this.counts = counts;
+		this.exposedBlocks = exposedBlocks;
+	}
+
+	/**
+	 * Summarizes the block states of a section. Block counts are taken from the palette,
+	 * exposed blocks are only searched if the section or one of its neighbours contains air.
+	 *
+	 * @param neighbours occupancy of the neighbouring sections in the order -x, +x, -y, +y, -z, +z.
+	 *                   null if the neighbour is not loaded, its blocks are treated as not air
+	 */
+	public static SectionSummary of(
+			PalettedContainer<BlockState> blockStates,
+			SectionOccupancy occupancy,
+			SectionOccupancy[] neighbours
+	) {
+		if (occupancy.isEmpty()) return EMPTY;
+
+		Int2IntOpenHashMap counts = new Int2IntOpenHashMap();
+		Int2ObjectOpenHashMap<BlockState> states = new Int2ObjectOpenHashMap<>();
+		blockStates.count((state, count) -> {
+			if (state.isAir()) return;
+			int blockId = Registries.BLOCK.getRawId(state.getBlock());
+			counts.addTo(blockId, count);
+			states.putIfAbsent(blockId, state);
+		});
+
+		Int2ObjectOpenHashMap<ShortArrayList> exposedBlocks = new Int2ObjectOpenHashMap<>();
+		if (!occupancy.isSolid() || hasAirNeighbour(neighbours)) {
+			for (int y = 0; y < 16; y++) {
+				for (int z = 0; z < 16; z++) {
+					for (int x = 0; x < 16; x++) {
+						if (occupancy.isAir(x, y, z) || !isExposed(occupancy, neighbours, x, y, z)) continue;
+						int blockId = Registries.BLOCK.getRawId(blockStates.get(x, y, z).getBlock());
+						exposedBlocks.computeIfAbsent(blockId, id -> new ShortArrayList()).add((short) (y << 8 | z << 4 | x));
+					}
+				}
+			}
+		}
+		return build(counts, states, exposedBlocks);
+	}
+
+	private static SectionSummary build(
+			Int2IntOpenHashMap counts,
+			Int2ObjectOpenHashMap<BlockState> states,
+			Int2ObjectOpenHashMap<ShortArrayList> exposedBlocks
+	) {
+		int[] blockIds = counts.keySet().toIntArray();
+		BlockState[] blockStates = new BlockState[blockIds.length];
+		int[] blockCounts = new int[blockIds.length];
+		short[][] exposed = new short[blockIds.length][];
+		for (int i = 0; i < blockIds.length; i++) {
+			blockStates[i] = states.get(blockIds[i]);
+			blockCounts[i] = counts.get(blockIds[i]);
+			ShortArrayList positions = exposedBlocks.get(blockIds[i]);
+			exposed[i] = positions == null ? new short[0] : positions.toShortArray();
+		}
+		return new SectionSummary(blockIds, blockStates, blockCounts, exposed);
+	}
+
+	private static boolean hasAirNeighbour(SectionOccupancy[] neighbours) {
+		for (SectionOccupancy neighbour : neighbours) {
+			if (neighbour != null && !neighbour.isSolid()) return true;
+		}
+		return false;
+	}
+
+	private static boolean isExposed(SectionOccupancy occupancy, SectionOccupancy[] neighbours, int x, int y, int z) {
+		return (x > 0 ? occupancy.isAir(x - 1, y, z) : isAir(neighbours[0], 15, y, z))
+				|| (x < 15 ? occupancy.isAir(x + 1, y, z) : isAir(neighbours[1], 0, y, z))
+				|| (y > 0 ? occupancy.isAir(x, y - 1, z) : isAir(neighbours[2], x, 15, z))
+				|| (y < 15 ? occupancy.isAir(x, y + 1, z) : isAir(neighbours[3], x, 0, z))
+				|| (z > 0 ? occupancy.isAir(x, y, z - 1) : isAir(neighbours[4], x, y, 15))
+				|| (z < 15 ? occupancy.isAir(x, y, z + 1) : isAir(neighbours[5], x, y, 0));
+	}
+
+	private static boolean isAir(SectionOccupancy neighbour, int x, int y, int z) {
+		return neighbour != null && neighbour.isAir(x, y, z);
+	}
+
+	/**
+	 * @return number of block types in the section (air excluded)
+	 */
+	public int size() {
+		return blockIds.length;
+	}
+
+	public int getBlockId(int type) {
+		return blockIds[type];
+	}
+
+	public BlockState getState(int type) {
+		return states[type];
+	}
+
+	public int getCount(int type) {
+		return counts[type];
+	}
+
+	/**
+	 * @return local indices (y << 8 | z << 4 | x) of the exposed blocks of the type
+	 */
+	public short[] getExposedBlocks(int type) {
+		return exposedBlocks[type];
+	}
+}
@@ -0,0 +1,86 @@
+package me.sailex.ai.npc.context;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Bridge for world queries of other threads (llm function calls, context generation).
+ * The queries of all NPCs are queued and answered one after another on the server thread at the end of the tick.
+ * Entity queries are not merged, the {@link EntityTracker} keeps the nearby entities of every NPC without box queries.
+ */
+public class ServerQueryBridge {
+
+	private static final Logger LOGGER = LogManager.getLogger(ServerQueryBridge.class);
+
+	private static final Queue<Query<?>> QUERIES = new ConcurrentLinkedQueue<>();
+
+	private ServerQueryBridge() {}
+
+	/**
+	 * Registers the tick listener that answers the queued queries.
+	 */
+	public static void register() {
+		ServerTickEvents.END_SERVER_TICK.register(server -> answerQueries());
+		ServerLifecycleEvents.SERVER_STOPPED.register(server -> cancelQueries());
+	}
+
+	/**
+	 * Runs the query on the server thread. Runs it directly if called on the server thread.
+	 *
+	 * @param server server of the queried world, the query runs directly if null
+	 * @return future completed with the result at the end of the tick
+	 */
+	public static <T> CompletableFuture<T> query(MinecraftServer server, Supplier<T> query) {
+		if (server == null || server.isOnThread()) {
+			return completeQuery(query);
+		}
+		CompletableFuture<T> future = new CompletableFuture<>();
+		QUERIES.add(new Query<>(query, future));
+		return future;
+	}
+
+	private static void answerQueries() {
+		//queries that are added while answering are answered at the next tick
+		for (int remaining = QUERIES.size(); remaining > 0; remaining--) {
+			Query<?> query = QUERIES.poll();
+			if (query == null) break;
+			query.answer();
+		}
+	}
+
+	private static void cancelQueries() {
+		Query<?> query;
+		while ((query = QUERIES.poll()) != null) {
+			query.future.completeExceptionally(new CancellationException("Server stopped"));
+		}
+	}
+
+	private static <T> CompletableFuture<T> completeQuery(Supplier<T> query) {
+		try {
+			return CompletableFuture.completedFuture(query.get());
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	private record Query<T>(Supplier<T> query, CompletableFuture<T> future) {
+
+		private void answer() {
+			try {
+				future.complete(query.get());
+			} catch (Exception e) {
+				LOGGER.error("Could not answer world query", e);
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package me.sailex.ai.npc.context.format;
+
+import me.sailex.ai.npc.model.context.WorldContext;
+import me.sailex.ai.npc.util.PromptFormatter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Formats the world context as comma separated tables with a header line.
+ * Positions of blocks and entities are relative to the NPC, empty fields are omitted.
+ * Names are quoted if they contain a comma, a quote or a line break.
+ * Estimates the tokens saved compared to the {@link VerboseContextFormatter} on every
+ * {@value #ESTIMATE_INTERVAL}th result and logs the extrapolated total every {@value #LOG_INTERVAL} estimates.
+ */
+public class CompactContextFormatter implements IContextFormatter {
+
+	private static final Logger LOGGER = LogManager.getLogger(CompactContextFormatter.class);
+	//rough number of characters per token of common llm tokenizers
+	private static final int CHARS_PER_TOKEN = 4;
+	private static final int MAX_BLOCKS = 15;
+	private static final int ESTIMATE_INTERVAL = 10;
+	private static final int LOG_INTERVAL = 10;
+	private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+	private final AtomicLong results = new AtomicLong();
+	private final AtomicLong savedTokens = new AtomicLong();
+
+	@Override
+	public String formatNPCState(WorldContext.NPCState state) {
+		StringBuilder builder = builder().append("x,y,z,health,food,on_ground,in_water,biome\n");
+		appendPosition(builder, state.position()).append(',')
+				.append(state.health()).append(',')
+				.append(state.food()).append(',')
+				.append(state.onGround() ? 1 : 0).append(',')
+				.append(state.inWater() ? 1 : 0).append(',');
+		appendField(builder, state.biome()).append('\n');
+		return report(builder.toString(), () -> PromptFormatter.formatNPCState(state));
+	}
+
+	@Override
+	public String formatInventory(WorldContext.InventoryState inventory) {
+		StringBuilder builder = builder().append("slot,item,count,damage\n");
+		appendItems(builder, "hand", inventory.mainHandItem());
+		appendItems(builder, "armor", inventory.armor());
+		appendItems(builder, null, inventory.hotbar());
+		appendItems(builder, null, inventory.mainInventory());
+		return report(builder.toString(), () -> PromptFormatter.formatInventory(inventory));
+	}
+
+	@Override
+	public String formatBlocks(List<WorldContext.BlockData> blocks, WorldContext.Position origin) {
+		StringBuilder builder = appendOrigin(builder(), origin).append("block,dx,dy,dz,in_area,tool,level\n");
+		List<WorldContext.BlockData> limitedBlocks = blocks.stream().limit(MAX_BLOCKS).toList();
+		for (WorldContext.BlockData block : limitedBlocks) {
+			appendField(builder, block.type()).append(',');
+			appendRelativePosition(builder, block.position(), origin).append(',')
+					.append(block.count()).append(',')
+					.append(block.toolNeeded()).append(',')
+					.append(block.mineLevel()).append('\n');
+		}
+		return report(builder.toString(), () -> PromptFormatter.formatBlocks(limitedBlocks));
+	}
+
+	@Override
+	public String formatEntities(List<WorldContext.EntityData> entities, WorldContext.Position origin) {
+		StringBuilder builder = appendOrigin(builder(), origin).append("id,name,category,dx,dy,dz\n");
+		for (WorldContext.EntityData entity : entities) {
+			builder.append(entity.id()).append(',');
+			appendField(builder, entity.name()).append(',')
+					.append(entity.category()).append(',');
+			appendRelativePosition(builder, entity.position(), origin).append('\n');
+		}
+		return report(builder.toString(), () -> PromptFormatter.formatEntities(entities));
+	}
+
+	@Override
+	public String formatPosition(WorldContext.Position position, WorldContext.Position origin) {
+		StringBuilder builder = builder();
+		if (origin == null) {
+			return appendPosition(builder, position).toString();
+		}
+		return appendRelativePosition(builder, position, origin).append(" relative to you").toString();
+	}
+
+	private void appendItems(StringBuilder builder, String slot, List<WorldContext.ItemData> items) {
+		for (WorldContext.ItemData item : items) {
+			builder.append(slot != null ? slot : String.valueOf(item.slot())).append(',');
+			appendField(builder, item.type()).append(',')
+					.append(item.count()).append(',');
+			if (item.damage() > 0) builder.append(item.damage());
+			builder.append('\n');
+		}
+	}
+
+	private static StringBuilder appendField(StringBuilder builder, String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			return builder.append(value);
+		}
+		return builder.append('"').append(value.replace("\"", "\"\"")).append('"');
+	}
+
+	private static StringBuilder appendOrigin(StringBuilder builder, WorldContext.Position origin) {
+		builder.append("positions relative to you at ");
+		return appendPosition(builder, origin).append('\n');
+	}
+
+	private static StringBuilder appendPosition(StringBuilder builder, WorldContext.Position position) {
+		return builder.append(position.x()).append(',').append(position.y()).append(',').append(position.z());
+	}
+
+	private static StringBuilder appendRelativePosition(
+			StringBuilder builder,
+			WorldContext.Position position,
+			WorldContext.Position origin
+	) {
+		return builder.append(position.x() - origin.x()).append(',')
+				.append(position.y() - origin.y()).append(',')
+				.append(position.z() - origin.z());
+	}
+
+	/**
+	 * @param verbose the verbose text is only formatted for the results that are estimated
+	 */
+	private String report(String compact, Supplier<String> verbose) {
+		long result = results.incrementAndGet();
+		if (result % ESTIMATE_INTERVAL != 0) return compact;
+		long saved = estimateTokens(verbose.get()) - estimateTokens(compact);
+		//the estimated result stands for the skipped ones
+		long total = savedTokens.addAndGet(saved * ESTIMATE_INTERVAL);
+		LOGGER.debug("Compact context saved ~{} tokens", saved);
+		if (result % (ESTIMATE_INTERVAL * LOG_INTERVAL) == 0) {
+			LOGGER.info("Compact context saved ~{} tokens in {} results so far", total, result);
+		}
+		return compact;
+	}
+
+	private static long estimateTokens(String text) {
+		return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+	}
+
+	private static StringBuilder builder() {
+		StringBuilder builder = BUILDER.get();
+		builder.setLength(0);
+		return builder;
+	}
+}
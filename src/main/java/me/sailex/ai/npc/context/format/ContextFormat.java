@@ -0,0 +1,32 @@
+package me.sailex.ai.npc.context.format;
+
+import java.util.Locale;
+
+/**
+ * Formats of the world context that can be selected per NPC.
+ */
+public enum ContextFormat {
+	VERBOSE,
+	COMPACT;
+
+	public IContextFormatter createFormatter() {
+		return switch (this) {
+			case VERBOSE -> new VerboseContextFormatter();
+			case COMPACT -> new CompactContextFormatter();
+		};
+	}
+
+	/**
+	 * @return the format with the name, {@link #VERBOSE} if the name is unknown
+	 */
+	public static ContextFormat of(String name) {
+		for (ContextFormat format : values()) {
+			if (format.name().equalsIgnoreCase(name)) return format;
+		}
+		return VERBOSE;
+	}
+
+	public String getName() {
+		return name().toLowerCase(Locale.ROOT);
+	}
+}
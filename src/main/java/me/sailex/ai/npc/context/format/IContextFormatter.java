@@ -0,0 +1,32 @@
+package me.sailex.ai.npc.context.format;
+
+import me.sailex.ai.npc.model.context.WorldContext;
+
+import java.util.List;
+
+/**
+ * Formats the world context of a NPC for the LLM.
+ */
+public interface IContextFormatter {
+
+	String formatNPCState(WorldContext.NPCState state);
+
+	String formatInventory(WorldContext.InventoryState inventory);
+
+	/**
+	 * @param origin position of the NPC
+	 */
+	String formatBlocks(List<WorldContext.BlockData> blocks, WorldContext.Position origin);
+
+	/**
+	 * @param origin position of the NPC
+	 */
+	String formatEntities(List<WorldContext.EntityData> entities, WorldContext.Position origin);
+
+	/**
+	 * Formats a single position, e.g. for the change lines of the context.
+	 *
+	 * @param origin position of the NPC, null to format the position absolute
+	 */
+	String formatPosition(WorldContext.Position position, WorldContext.Position origin);
+}
@@ -0,0 +1,37 @@
+package me.sailex.ai.npc.context.format;
+
+import me.sailex.ai.npc.model.context.WorldContext;
+import me.sailex.ai.npc.util.PromptFormatter;
+
+import java.util.List;
+
+/**
+ * Formats the world context as english sentences via the {@link PromptFormatter}.
+ */
+public class VerboseContextFormatter implements IContextFormatter {
+
+	@Override
+	public String formatNPCState(WorldContext.NPCState state) {
+		return PromptFormatter.formatNPCState(state);
+	}
+
+	@Override
+	public String formatInventory(WorldContext.InventoryState inventory) {
+		return PromptFormatter.formatInventory(inventory);
+	}
+
+	@Override
+	public String formatBlocks(List<WorldContext.BlockData> blocks, WorldContext.Position origin) {
+		return PromptFormatter.formatBlocks(blocks);
+	}
+
+	@Override
+	public String formatEntities(List<WorldContext.EntityData> entities, WorldContext.Position origin) {
+		return PromptFormatter.formatEntities(entities);
+	}
+
+	@Override
+	public String formatPosition(WorldContext.Position position, WorldContext.Position origin) {
+		return String.format("x: %s y: %s, z: %s", position.x(), position.y(), position.z());
+	}
+}
@@ -19,7 +19,7 @@ public class SqliteClient {
 	 * Create the database and tables.
 	 */
 	public void initDatabase(String databaseName) {
-		String databasePath = initDataBaseDir();
+		String databasePath = initDataBaseDir().getAbsolutePath();
 		try {
 			String jdbcUrl = String.format("jdbc:sqlite:%s/%s.db", databasePath, databaseName);
 			connection = DriverManager.getConnection(jdbcUrl);
@@ -31,13 +31,20 @@ public class SqliteClient {
 		}
 	}
 
-	private String initDataBaseDir() {
-		File configDir = FabricLoader.getInstance().getConfigDir().toFile();
-		File sqlDbDir = new File(configDir, SecondBrain.MOD_ID);
+	private File initDataBaseDir() {
+		File sqlDbDir = getDataBaseDir();
 		if (sqlDbDir.mkdirs()) {
 			LOGGER.info("Database directory created at: {}", sqlDbDir.getAbsolutePath());
 		}
-		return sqlDbDir.getAbsolutePath();
+		return sqlDbDir;
+	}
+
+	/**
+	 * Directory of the database. Also used for files that belong to the db like embedding indexes.
+	 */
+	public File getDataBaseDir() {
+		File configDir = FabricLoader.getInstance().getConfigDir().toFile();
+		return new File(configDir, SecondBrain.MOD_ID);
 	}
 
 	/**
@@ -55,6 +62,20 @@ public class SqliteClient {
 		}
 	}
 
+	/**
+	 * Select data from the database.
+	 * @param statement the prepared statement
+	 */
+	public ResultSet select(PreparedStatement statement) {
+		try {
+			statement.closeOnCompletion();
+			return statement.executeQuery();
+		} catch (SQLException e) {
+			LOGGER.error("Error selecting statement: {} : {}", statement, e.getMessage());
+			return null;
+		}
+	}
+
 	/**
 	 * Insert data into the database.
 	 * @param statement the prepared statement
@@ -1,9 +1,10 @@
 package me.sailex.ai.npc.database.repositories
 
 import me.sailex.ai.npc.database.SqliteClient
+import me.sailex.ai.npc.model.database.Resource
 import java.sql.ResultSet
 
-abstract class ARepository(val sqliteClient: SqliteClient) : IRepository {
+abstract class ARepository<T : Resource>(val sqliteClient: SqliteClient) : IRepository<T> {
     override fun init() {
         createTable()
     }
@@ -2,12 +2,11 @@ package me.sailex.ai.npc.database.repositories
 
 import me.sailex.ai.npc.database.SqliteClient
 import me.sailex.ai.npc.model.database.Conversation
-import me.sailex.ai.npc.model.database.Resource
 import me.sailex.ai.npc.util.VectorUtil
 
 class ConversationRepository(
     sqliteClient: SqliteClient,
-) : ARepository(sqliteClient) {
+) : ARepository<Conversation>(sqliteClient) {
     override fun createTable() {
         val sql = """
             CREATE TABLE IF NOT EXISTS conversations (
@@ -22,7 +21,8 @@ class ConversationRepository(
     }
 
     fun insert(
-        conversation: Conversation
+        conversation: Conversation,
+        embedding: FloatArray
     ) {
         val statement =
             sqliteClient.buildPreparedStatement(
@@ -31,26 +31,26 @@ class ConversationRepository(
         statement.setString(1, conversation.npcName)
         statement.setString(2, conversation.message)
         statement.setTimestamp(3, conversation.timestamp)
-        statement.setBytes(4, VectorUtil.convertToBytes(conversation.embedding))
+        statement.setBytes(4, VectorUtil.convertToBytes(embedding))
         sqliteClient.insert(statement)
     }
 
     /**
-     * Selects latest two hundred conversations of a npc
+     * Selects all conversations of a npc in insertion order
      */
-    fun selectByName(npcName: String): List<Conversation> {
-        val sql = "SELECT * FROM conversations WHERE npc_name = '%s' ORDER BY timestamp DESC LIMIT 200".format(npcName)
+    fun selectByName(npcName: String): List<Pair<Conversation, FloatArray>> {
+        val sql = "SELECT * FROM conversations WHERE npc_name = '%s' ORDER BY id".format(npcName)
         return executeAndProcessConversations(sql)
     }
 
-    override fun selectAll(): List<Resource> {
+    override fun selectAll(): List<Pair<Conversation, FloatArray>> {
         val sql = "SELECT * FROM conversations"
         return executeAndProcessConversations(sql)
     }
 
-    private fun executeAndProcessConversations(sql: String): List<Conversation> {
+    private fun executeAndProcessConversations(sql: String): List<Pair<Conversation, FloatArray>> {
         val result = sqliteClient.select(sql)
-        val conversations = arrayListOf<Conversation>()
+        val conversations = arrayListOf<Pair<Conversation, FloatArray>>()
 
         while (result.next()) {
             val conversation =
@@ -58,9 +58,8 @@ class ConversationRepository(
                     result.getString("npc_name"),
                     result.getString("conversation"),
                     result.getTimestamp("timestamp"),
-                    VectorUtil.convertToDoubles(result.getBytes("conversation_embedding")),
                 )
-            conversations.add(conversation)
+            conversations.add(Pair(conversation, VectorUtil.convertToFloats(result.getBytes("conversation_embedding"))))
         }
         result.close()
         return conversations
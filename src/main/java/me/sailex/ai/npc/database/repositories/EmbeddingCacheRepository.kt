@@ -0,0 +1,62 @@
+package me.sailex.ai.npc.database.repositories
+
+import me.sailex.ai.npc.database.SqliteClient
+import me.sailex.ai.npc.model.database.CachedEmbedding
+import me.sailex.ai.npc.util.VectorUtil
+
+class EmbeddingCacheRepository(
+    sqliteClient: SqliteClient,
+) : ARepository<CachedEmbedding>(sqliteClient) {
+    override fun createTable() {
+        val sql = """
+            CREATE TABLE IF NOT EXISTS embedding_cache (
+                    model CHARACTER(64) NOT NULL,
+                    text_hash CHARACTER(64) NOT NULL,
+                    embedding BLOB NOT NULL,
+                    PRIMARY KEY (model, text_hash)
+            );
+        """
+        sqliteClient.create(sql)
+    }
+
+    fun insert(
+        key: CachedEmbedding,
+        embedding: FloatArray
+    ) {
+        val statement =
+            sqliteClient.buildPreparedStatement(
+                "INSERT OR REPLACE INTO embedding_cache (model, text_hash, embedding) VALUES (?, ?, ?)",
+            ) ?: return
+        statement.setString(1, key.model)
+        statement.setString(2, key.textHash)
+        statement.setBytes(3, VectorUtil.convertToBytes(embedding))
+        sqliteClient.insert(statement)
+    }
+
+    /**
+     * Selects the cached embedding of the key or null if it's not cached
+     */
+    fun select(key: CachedEmbedding): FloatArray? {
+        val statement =
+            sqliteClient.buildPreparedStatement(
+                "SELECT embedding FROM embedding_cache WHERE model = ? AND text_hash = ?",
+            ) ?: return null
+        statement.setString(1, key.model)
+        statement.setString(2, key.textHash)
+        val result = sqliteClient.select(statement) ?: return null
+        val embedding = if (result.next()) VectorUtil.convertToFloats(result.getBytes("embedding")) else null
+        result.close()
+        return embedding
+    }
+
+    override fun selectAll(): List<Pair<CachedEmbedding, FloatArray>> {
+        val result = sqliteClient.select("SELECT * FROM embedding_cache")
+        val embeddings = arrayListOf<Pair<CachedEmbedding, FloatArray>>()
+        while (result.next()) {
+            val key = CachedEmbedding(result.getString("model"), result.getString("text_hash"))
+            embeddings.add(Pair(key, VectorUtil.convertToFloats(result.getBytes("embedding"))))
+        }
+        result.close()
+        return embeddings
+    }
+}
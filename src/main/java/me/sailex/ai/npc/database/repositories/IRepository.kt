@@ -2,10 +2,13 @@ package me.sailex.ai.npc.database.repositories
 
 import me.sailex.ai.npc.model.database.Resource
 
-interface IRepository {
+interface IRepository<T : Resource> {
     fun init()
 
     fun createTable()
 
-    fun selectAll(): List<Resource>
+    /**
+     * Selects all resources mapped to their embedding
+     */
+    fun selectAll(): List<Pair<T, FloatArray>>
 }
@@ -2,64 +2,119 @@ package me.sailex.ai.npc.database.repositories
 
 import me.sailex.ai.npc.database.SqliteClient
 import me.sailex.ai.npc.model.database.Recipe
-import me.sailex.ai.npc.model.database.Resource
+import me.sailex.ai.npc.util.LogUtil
 import me.sailex.ai.npc.util.VectorUtil
 import java.sql.ResultSet
 
 class RecipesRepository(
     sqliteClient: SqliteClient,
-) : ARepository(sqliteClient) {
+) : ARepository<Recipe>(sqliteClient) {
     override fun createTable() {
+        migrateTable()
         val sql = """
             CREATE TABLE IF NOT EXISTS recipes (
-                    name CHARACTER(255) UNIQUE PRIMARY KEY,
+                    id CHARACTER(255) NOT NULL,
+                    embedding_model CHARACTER(64) NOT NULL,
+                    content_hash CHARACTER(64) NOT NULL,
+                    name CHARACTER(255) NOT NULL,
                     type CHARACTER(16) NOT NULL,
                     table_needed CHARACTER(14) NOT NULL,
                     items_needed VARCHAR(510) NOT NULL,
-                    name_embedding BLOB
+                    name_embedding BLOB,
+                    PRIMARY KEY (id, embedding_model)
             );
         """
         sqliteClient.create(sql)
     }
 
+    /**
+     * Drops the recipes table of older versions, which didn't store the recipe id and embedding model.
+     * The recipes are vectorized again (mostly served by the embedding cache).
+     */
+    private fun migrateTable() {
+        val result = sqliteClient.select("PRAGMA table_info(recipes)") ?: return
+        val columns = hashSetOf<String>()
+        while (result.next()) {
+            columns.add(result.getString("name"))
+        }
+        result.close()
+        if (columns.isNotEmpty() && !columns.containsAll(listOf("id", "embedding_model", "content_hash"))) {
+            LogUtil.info("Migrating recipes table, recipes will be vectorized again", true)
+            sqliteClient.create("DROP TABLE recipes")
+        }
+    }
+
+    /**
+     * Inserts the recipe or replaces the stored one with the same id and embedding model.
+     * A replaced recipe gets a new rowid, so the insertion order matches the order of the embedding store.
+     */
     fun insert(
-        recipe: Recipe
+        recipe: Recipe,
+        embeddingModel: String,
+        embedding: FloatArray
+    ) {
+        val statement =
+            sqliteClient.buildPreparedStatement(
+                "INSERT OR REPLACE INTO recipes (id, embedding_model, content_hash, name, type, table_needed, items_needed, name_embedding)" +
+                    " VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+            ) ?: return
+        statement.setString(1, recipe.id)
+        statement.setString(2, embeddingModel)
+        statement.setString(3, recipe.contentHash)
+        statement.setString(4, recipe.name)
+        statement.setString(5, recipe.type)
+        statement.setString(6, recipe.tableNeeded)
+        statement.setString(7, recipe.itemsNeeded)
+        statement.setBytes(8, VectorUtil.convertToBytes(embedding))
+        sqliteClient.insert(statement)
+    }
+
+    /**
+     * Deletes the recipe vectorized with the embedding model
+     */
+    fun delete(
+        recipeId: String,
+        embeddingModel: String
     ) {
         val statement =
             sqliteClient.buildPreparedStatement(
-                "INSERT INTO recipes (name, type, table_needed, items_needed, name_embedding) VALUES (?, ?, ?, ?, ?)" +
-                    " ON CONFLICT(name) DO UPDATE SET items_needed = excluded.items_needed, name_embedding = excluded.name_embedding",
-            )
-        statement.setString(1, recipe.name)
-        statement.setString(2, recipe.type)
-        statement.setString(3, recipe.tableNeeded)
-        statement.setString(4, recipe.itemsNeeded)
-        statement.setBytes(5, VectorUtil.convertToBytes(recipe.embedding))
+                "DELETE FROM recipes WHERE id = ? AND embedding_model = ?",
+            ) ?: return
+        statement.setString(1, recipeId)
+        statement.setString(2, embeddingModel)
         sqliteClient.insert(statement)
     }
 
-    fun selectCount(): Int {
-        return super.selectCount("recipes")
+    /**
+     * Selects the recipes vectorized with the embedding model in insertion order
+     */
+    fun selectByModel(embeddingModel: String): List<Pair<Recipe, FloatArray>> {
+        val statement =
+            sqliteClient.buildPreparedStatement(
+                "SELECT * FROM recipes WHERE embedding_model = ? ORDER BY rowid",
+            ) ?: return emptyList()
+        statement.setString(1, embeddingModel)
+        return processResult(sqliteClient.select(statement) ?: return emptyList())
     }
 
-    override fun selectAll(): List<Resource> {
-        val sql = "SELECT * FROM recipes"
+    override fun selectAll(): List<Pair<Recipe, FloatArray>> {
+        val sql = "SELECT * FROM recipes ORDER BY rowid"
         val result = sqliteClient.select(sql)
         return processResult(result)
     }
 
-    private fun processResult(result: ResultSet): List<Resource> {
-        val recipes = arrayListOf<Recipe>()
+    private fun processResult(result: ResultSet): List<Pair<Recipe, FloatArray>> {
+        val recipes = arrayListOf<Pair<Recipe, FloatArray>>()
         while (result.next()) {
             val requirement =
                 Recipe(
+                    result.getString("id"),
                     result.getString("name"),
                     result.getString("type"),
                     result.getString("table_needed"),
                     result.getString("items_needed"),
-                    VectorUtil.convertToDoubles(result.getBytes("name_embedding")),
                 )
-            recipes.add(requirement)
+            recipes.add(Pair(requirement, VectorUtil.convertToFloats(result.getBytes("name_embedding"))))
         }
         result.close()
         return recipes
@@ -12,12 +12,14 @@ class RepositoryFactory(
     private val executor = Executors.newSingleThreadExecutor()
     val conversationRepository = ConversationRepository(sqliteClient)
     val recipesRepository = RecipesRepository(sqliteClient)
+    val embeddingCacheRepository = EmbeddingCacheRepository(sqliteClient)
 
     fun initRepositories() {
         CompletableFuture.runAsync({
             sqliteClient.initDatabase(SecondBrain.MOD_ID)
             conversationRepository.init()
             recipesRepository.init()
+            embeddingCacheRepository.init()
         }, executor).exceptionally( {
             LogUtil.error("Failed to init sql database", true)
             null
@@ -2,16 +2,18 @@ package me.sailex.ai.npc.database.resources
 
 import me.sailex.ai.npc.database.repositories.ConversationRepository
 import me.sailex.ai.npc.database.repositories.RecipesRepository
+import me.sailex.ai.npc.embedding.EmbeddingStore
+import me.sailex.ai.npc.embedding.HnswIndex
 import me.sailex.ai.npc.llm.ILLMClient
 import me.sailex.ai.npc.model.database.Conversation
 import me.sailex.ai.npc.model.database.Recipe
 import me.sailex.ai.npc.util.LogUtil
-import me.sailex.ai.npc.util.ResourceRecommender
 
 import net.minecraft.recipe.Ingredient
 import net.minecraft.recipe.RecipeEntry
 import net.minecraft.server.MinecraftServer
 import net.minecraft.util.collection.DefaultedList
+import java.io.File
 import java.sql.Timestamp
 import java.util.concurrent.CompletableFuture
 
@@ -22,17 +24,25 @@ import java.util.concurrent.TimeUnit
 class ResourcesProvider(
     private val conversationRepository: ConversationRepository,
     private val recipesRepository: RecipesRepository,
-    private val llmClient: ILLMClient
+    private val llmClient: ILLMClient,
+    private val embeddingBatchSize: Int
 ) {
     private var executorService: ExecutorService = Executors.newFixedThreadPool(3)
 
-    private val recipes = arrayListOf<Recipe>()
-    private val conversations = arrayListOf<Conversation>()
+    private val recipes = EmbeddingStore<Recipe>(HnswIndex()) { "${it.id}:${it.contentHash}" }
+    private val conversations = EmbeddingStore<Conversation>(HnswIndex()) {
+        "${it.npcName}:${it.timestamp.time}:${it.message.hashCode()}"
+    }
+    private val dataDir: File = recipesRepository.sqliteClient.dataBaseDir
+    private lateinit var conversationsIndexFile: File
+    //conversations that are already stored in the db
+    private var persistedConversations = 0
 
     /**
      * Loads conversations recipes from db/mc into memory
      */
     fun loadResources(server: MinecraftServer, npcName: String) {
+        conversationsIndexFile = File(dataDir, "conversations-$npcName.hnsw")
         runAsync {
             LogUtil.info("Loading resources into memory...")
             loadConversations(npcName)
@@ -42,24 +52,22 @@ class ResourcesProvider(
     }
 
     fun getRelevantRecipes(itemName: String): List<Recipe> {
-        return ResourceRecommender.getRelevantResources(llmClient, itemName, recipes, 5)
-            .filterIsInstance<Recipe>()
+        return recipes.search(llmClient.generateEmbedding(listOf(itemName)), 5)
     }
 
     fun getRelevantConversations(message: String): List<Conversation> {
-        return ResourceRecommender.getRelevantResources(llmClient, message, conversations, 3)
-            .filterIsInstance<Conversation>()
+        return conversations.search(llmClient.generateEmbedding(listOf(message)), 3)
     }
 
     fun addConversation(npcName: String, timestamp: Timestamp, message: String) {
-        this.conversations.add(Conversation(
-            npcName, message,
-            timestamp,
-            llmClient.generateEmbedding(listOf(message))))
+        this.conversations.add(
+            Conversation(npcName, message, timestamp),
+            llmClient.generateEmbedding(listOf(message)))
     }
 
     /**
-     * Saves recipes and conversations to local db. (called on server stop)
+     * Saves conversations to local db and the indexes next to it. (called on server stop)
+     * Recipes are already saved batch by batch while they are vectorized.
      *
      * Stops initial resources indexing if not finished by shutting down executor
      */
@@ -68,10 +76,14 @@ class ResourcesProvider(
         executorService = Executors.newFixedThreadPool(2)
         LogUtil.info("Saving resources into db...", true)
         val recipesFuture = runAsync {
-            recipes.forEach { recipe -> recipesRepository.insert(recipe) }
+            recipes.saveIndex(getRecipesIndexFile(llmClient.embeddingModel))
         }
         val conversationFuture = runAsync {
-            conversations.forEach { conversation -> conversationRepository.insert(conversation) }
+            conversations.forEachFrom(persistedConversations) { conversation, embedding ->
+                conversationRepository.insert(conversation, embedding)
+            }
+            persistedConversations = conversations.size()
+            if (this::conversationsIndexFile.isInitialized) conversations.saveIndex(conversationsIndexFile)
         }
         CompletableFuture.allOf(recipesFuture, conversationFuture).get()
         executorService.shutdown()
@@ -93,38 +105,75 @@ class ResourcesProvider(
     }
 
     private fun loadConversations(npcName: String) {
-        this.conversations.addAll(conversationRepository.selectByName(npcName))
+        conversations.bulkLoad(conversationsIndexFile) {
+            conversationRepository.selectByName(npcName).forEach { (conversation, embedding) ->
+                this.conversations.add(conversation, embedding)
+            }
+        }
+        persistedConversations = conversations.size()
     }
 
+    /**
+     * Loads the recipes that are already vectorized with the current embedding model from the db.
+     * Only new or changed recipes are vectorized (in batches), recipes that no longer exist are deleted.
+     * Every batch is saved directly, so an interrupted indexing continues at the next start.
+     */
     private fun loadRecipes(server: MinecraftServer) {
-        val recipeEntries: Collection<RecipeEntry<*>> = server.recipeManager.values().filter {
-            it.value.ingredients.isNotEmpty()
+        val embeddingModel = llmClient.embeddingModel
+        val liveRecipes = server.recipeManager.values()
+            .filter { it.value.ingredients.isNotEmpty() }
+            .map { buildRecipe(it) }
+            .associateBy { it.id }
+
+        val (storedRecipes, removedRecipes) = recipesRepository.selectByModel(embeddingModel)
+            .partition { (recipe, _) -> recipe.id in liveRecipes }
+        removedRecipes.forEach { (recipe, _) -> recipesRepository.delete(recipe.id, embeddingModel) }
+        val upToDateRecipes = storedRecipes.filter { (recipe, _) ->
+            liveRecipes[recipe.id]?.contentHash == recipe.contentHash
         }
-
-        //load from the db (avoid re-vectorize the recipe names)
-        if (recipesRepository.selectCount() == recipeEntries.size) {
-            this.recipes.addAll(recipesRepository.selectAll().filterIsInstance<Recipe>())
-            return
+        recipes.bulkLoad(getRecipesIndexFile(embeddingModel)) {
+            upToDateRecipes.forEach { (recipe, embedding) -> this.recipes.add(recipe, embedding) }
         }
 
-        recipeEntries.forEach { entry ->
-            executorService.execute {
-                this.recipes.add(buildRecipe(entry))
+        val upToDateIds = upToDateRecipes.mapTo(hashSetOf()) { it.first.id }
+        vectorizeRecipes(liveRecipes.values.filter { it.id !in upToDateIds }, embeddingModel)
+    }
+
+    private fun vectorizeRecipes(missingRecipes: List<Recipe>, embeddingModel: String) {
+        if (missingRecipes.isEmpty()) return
+        LogUtil.info("Vectorizing ${missingRecipes.size} new or changed recipes...", true)
+        var vectorizedRecipes = 0
+        missingRecipes.chunked(embeddingBatchSize.coerceAtLeast(1)).forEach { batch ->
+            if (Thread.currentThread().isInterrupted) {
+                LogUtil.info("Vectorized $vectorizedRecipes/${missingRecipes.size} recipes, continuing at next start", true)
+                return
             }
+            val embeddings = llmClient.generateEmbeddings(batch.map { it.name })
+            batch.zip(embeddings).forEach { (recipe, embedding) ->
+                if (recipes.add(recipe, embedding)) recipesRepository.insert(recipe, embeddingModel, embedding)
+            }
+            vectorizedRecipes += batch.size
+            LogUtil.info("Vectorized $vectorizedRecipes/${missingRecipes.size} recipes", true)
         }
     }
 
+    /**
+     * Index file per embedding model, so switching the llm type doesn't invalidate the index of the other model
+     */
+    private fun getRecipesIndexFile(embeddingModel: String): File {
+        return File(dataDir, "recipes-${embeddingModel.replace(Regex("[^A-Za-z0-9._-]"), "_")}.hnsw")
+    }
+
     private fun buildRecipe(entry: RecipeEntry<*>): Recipe {
-        val recipeName = entry.id.path
         val recipeValue = entry.value
         val ingredients = recipeValue.ingredients
 
         return Recipe(
-            recipeName,
+            entry.id.toString(),
+            entry.id.path,
             recipeValue.type.toString(),
             recipeValue.createIcon().name.string,
-            getItemNeeded(ingredients),
-            llmClient.generateEmbedding(listOf(recipeName))
+            getItemNeeded(ingredients)
         )
     }
 
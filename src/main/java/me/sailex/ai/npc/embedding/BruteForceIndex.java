@@ -0,0 +1,47 @@
+package me.sailex.ai.npc.embedding;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Exact index that compares the query with every row. Fine for small stores like the llm functions.
+ */
+public class BruteForceIndex implements IVectorIndex {
+
+	private int size;
+
+	@Override
+	public void add(int row, IRowScorer scorer) {
+		size = row + 1;
+	}
+
+	@Override
+	public int[] search(float[] query, int maxResults, IRowScorer scorer) {
+		TopK topK = new TopK(Math.min(maxResults, size));
+		for (int row = 0; row < size; row++) {
+			topK.offer(row, scorer.similarity(query, row));
+		}
+		return topK.sortedRows();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(size);
+	}
+
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		size = in.readInt();
+	}
+}
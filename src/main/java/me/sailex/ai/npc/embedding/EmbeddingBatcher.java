@@ -0,0 +1,137 @@
+package me.sailex.ai.npc.embedding;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the embedding requests of all NPCs for a short window and sends them as one batched request.
+ * Identical texts of the window are only embedded once, so a chat message that reaches ten NPCs
+ * costs one embedding request.
+ */
+public class EmbeddingBatcher {
+
+	private static final Logger LOGGER = LogManager.getLogger(EmbeddingBatcher.class);
+
+	private final long windowMillis;
+	private final int maxBatchSize;
+	//daemon threads, live as long as the mod since the factory outlives single server instances.
+	//the scheduler only ends the windows, the batches are sent on the sender threads so a slow service
+	//doesn't delay the windows of the other batch keys
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "embedding-batcher");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ExecutorService sender = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "embedding-batch-sender");
+		thread.setDaemon(true);
+		return thread;
+	});
+	//pending batch per embedding service and model, guarded by this
+	private final Map<String, Batch> pendingBatches = new HashMap<>();
+
+	/**
+	 * @param windowMillis time a batch waits for further requests
+	 * @param maxBatchSize number of texts that sends a batch before the window ends
+	 */
+	public EmbeddingBatcher(long windowMillis, int maxBatchSize) {
+		this.windowMillis = windowMillis;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+	}
+
+	/**
+	 * Adds the texts to the pending batch of the key and waits for their embeddings.
+	 *
+	 * @param batchKey  key of the embedding service and model, only requests with the same key are batched
+	 * @param texts     texts to embed
+	 * @param requester sends the batched texts to the embedding service, returns one embedding per text.
+	 *                  Only the requester of the call that opened the batch is used, once per batch
+	 * @return one embedding per text, empty if the request failed
+	 */
+	public List<float[]> embed(String batchKey, List<String> texts, Function<List<String>, List<float[]>> requester) {
+		if (texts.isEmpty()) return new ArrayList<>();
+		List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+		Batch fullBatch = null;
+		synchronized (this) {
+			Batch batch = pendingBatches.computeIfAbsent(batchKey, key -> createBatch(key, requester));
+			for (String text : texts) {
+				futures.add(batch.embeddings.computeIfAbsent(text, t -> new CompletableFuture<>()));
+			}
+			if (batch.embeddings.size() >= maxBatchSize) {
+				pendingBatches.remove(batchKey);
+				fullBatch = batch;
+			}
+		}
+		if (fullBatch != null) {
+			fullBatch.send();
+		}
+		return awaitEmbeddings(futures);
+	}
+
+	private Batch createBatch(String batchKey, Function<List<String>, List<float[]>> requester) {
+		Batch batch = new Batch(requester);
+		scheduler.schedule(() -> {
+			synchronized (this) {
+				if (pendingBatches.get(batchKey) != batch) return;
+				pendingBatches.remove(batchKey);
+			}
+			sender.execute(batch::send);
+		}, windowMillis, TimeUnit.MILLISECONDS);
+		return batch;
+	}
+
+	private List<float[]> awaitEmbeddings(List<CompletableFuture<float[]>> futures) {
+		List<float[]> embeddings = new ArrayList<>(futures.size());
+		for (CompletableFuture<float[]> future : futures) {
+			try {
+				embeddings.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				embeddings.add(new float[] {});
+			} catch (ExecutionException e) {
+				embeddings.add(new float[] {});
+			}
+		}
+		return embeddings;
+	}
+
+	private static class Batch {
+
+		private final Function<List<String>, List<float[]>> requester;
+		private final Map<String, CompletableFuture<float[]>> embeddings = new LinkedHashMap<>();
+
+		private Batch(Function<List<String>, List<float[]>> requester) {
+			this.requester = requester;
+		}
+
+		/**
+		 * Sends the batch, is called once after the batch was removed from the pending batches.
+		 */
+		private void send() {
+			List<String> texts = new ArrayList<>(embeddings.keySet());
+			List<float[]> result;
+			try {
+				result = requester.apply(texts);
+			} catch (Exception e) {
+				LOGGER.error("Could not embed batch of {} texts: {}", texts.size(), e.getMessage());
+				result = List.of();
+			}
+			for (int i = 0; i < texts.size(); i++) {
+				embeddings.get(texts.get(i)).complete(i < result.size() ? result.get(i) : new float[] {});
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package me.sailex.ai.npc.embedding;
+
+import me.sailex.ai.npc.database.repositories.EmbeddingCacheRepository;
+import me.sailex.ai.npc.model.database.CachedEmbedding;
+import me.sailex.ai.npc.util.HashUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of embeddings keyed by embedding model and text hash.
+ * Has an in-memory LRU tier in front of the sqlite table, so repeated texts skip the embedding service.
+ * Returned embeddings are shared and must not be modified.
+ */
+public class EmbeddingCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(EmbeddingCache.class);
+	private static final int DEFAULT_CAPACITY = 4096;
+
+	private final EmbeddingCacheRepository repository;
+	private final Map<CachedEmbedding, float[]> lruCache;
+
+	public EmbeddingCache(EmbeddingCacheRepository repository) {
+		this(repository, DEFAULT_CAPACITY);
+	}
+
+	public EmbeddingCache(EmbeddingCacheRepository repository, int capacity) {
+		this.repository = repository;
+		this.lruCache = new LinkedHashMap<>(capacity, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CachedEmbedding, float[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return the cached embedding of the text or null if it's not cached
+	 */
+	public float[] get(String model, String text) {
+		CachedEmbedding key = buildKey(model, text);
+		synchronized (lruCache) {
+			float[] embedding = lruCache.get(key);
+			if (embedding != null) return embedding;
+		}
+		try {
+			float[] embedding = repository.select(key);
+			if (embedding != null && embedding.length > 0) {
+				synchronized (lruCache) {
+					lruCache.put(key, embedding);
+				}
+				return embedding;
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Could not read embedding cache: {}", e.getMessage());
+		}
+		return null;
+	}
+
+	public void put(String model, String text, float[] embedding) {
+		if (embedding.length == 0) return;
+		CachedEmbedding key = buildKey(model, text);
+		synchronized (lruCache) {
+			lruCache.put(key, embedding);
+		}
+		try {
+			repository.insert(key, embedding);
+		} catch (Exception e) {
+			LOGGER.warn("Could not write embedding cache: {}", e.getMessage());
+		}
+	}
+
+	private CachedEmbedding buildKey(String model, String text) {
+		return new CachedEmbedding(model, HashUtil.sha256(text));
+	}
+}
@@ -0,0 +1,60 @@
+package me.sailex.ai.npc.embedding;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Embeddings generated during one turn of a NPC (one handled event).
+ * The context is bound to the thread that handles the event, so the function manager, resources provider
+ * and conversation history embed every distinct text of the turn at most once.
+ * Other than the {@link EmbeddingCache} it can't be evicted by background indexing.
+ */
+public class EmbeddingContext implements AutoCloseable {
+
+	private static final ThreadLocal<EmbeddingContext> CURRENT = new ThreadLocal<>();
+
+	private final Map<String, float[]> embeddings = new HashMap<>();
+	private final EmbeddingContext parent;
+
+	private EmbeddingContext(EmbeddingContext parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Opens a context for the current thread. Must be closed at the end of the turn.
+	 */
+	public static EmbeddingContext open() {
+		EmbeddingContext context = new EmbeddingContext(CURRENT.get());
+		CURRENT.set(context);
+		return context;
+	}
+
+	/**
+	 * @return the context of the current thread or null if no turn is handled on this thread
+	 */
+	public static EmbeddingContext current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @return the embedding of the text generated in this turn or null
+	 */
+	public float[] get(String text) {
+		return embeddings.get(text);
+	}
+
+	public void put(String text, float[] embedding) {
+		if (embedding.length > 0) {
+			embeddings.put(text, embedding);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (parent == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(parent);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package me.sailex.ai.npc.embedding;
+
+import me.sailex.ai.npc.model.database.Resource;
+import me.sailex.ai.npc.util.VectorUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * In-memory store of resources and their embeddings.
+ * All embeddings are normalized on insert and kept as int8 codes with one scale per row in a contiguous matrix,
+ * next to a float32 matrix of the same rows. Searches are answered by a {@link IVectorIndex} over the quantized rows,
+ * the candidates are rescored exactly with the float query against the float rows.
+ *
+ * @param <T> type of the stored resources
+ */
+public class EmbeddingStore<T extends Resource> {
+
+	private static final Logger LOGGER = LogManager.getLogger(EmbeddingStore.class);
+	private static final int INITIAL_CAPACITY = 64;
+	//candidates per result that are rescored after the quantized search
+	private static final int RESCORE_FACTOR = 4;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final List<T> resources = new ArrayList<>();
+	private final IVectorIndex index;
+	private final Function<T, String> keyFunction;
+	private final IRowScorer scorer = new MatrixScorer();
+	private byte[] codes = new byte[0];
+	private float[] scales = new float[0];
+	//normalized float32 rows, only read for the exact rescoring and the iteration
+	private float[] floatRows = new float[0];
+	private int dimension = -1;
+	private boolean deferIndexing;
+
+	/**
+	 * Creates a store with an exact index that can't be persisted.
+	 */
+	public EmbeddingStore() {
+		this(new BruteForceIndex(), Object::toString);
+	}
+
+	/**
+	 * @param index       index used to search the embeddings
+	 * @param keyFunction stable key of a resource, used to validate a persisted index
+	 */
+	public EmbeddingStore(IVectorIndex index, Function<T, String> keyFunction) {
+		this.index = index;
+		this.keyFunction = keyFunction;
+	}
+
+	/**
+	 * Adds a resource to the store.
+	 *
+	 * @param resource  the resource
+	 * @param embedding the embedding of the resource (is normalized and quantized)
+	 * @return false if the embedding is empty or does not match the dimension of the store
+	 */
+	public boolean add(T resource, float[] embedding) {
+		lock.writeLock().lock();
+		try {
+			if (embedding.length == 0 || (dimension != -1 && embedding.length != dimension)) {
+				LOGGER.warn("Skipped resource with embedding dimension {} (expected {}): {}",
+						embedding.length, dimension, resource);
+				return false;
+			}
+			if (dimension == -1) {
+				dimension = embedding.length;
+			}
+			int row = resources.size();
+			ensureCapacity(row + 1);
+			float[] normalized = VectorUtil.normalize(embedding.clone(), 0, dimension);
+			System.arraycopy(normalized, 0, floatRows, row * dimension, dimension);
+			scales[row] = VectorUtil.quantize(normalized, 0, dimension, codes, row * dimension);
+			resources.add(resource);
+			if (!deferIndexing) {
+				index.add(row, scorer);
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds the resources of the loader and restores the persisted index of them.
+	 * Rows that are not covered by the persisted index are indexed incrementally.
+	 *
+	 * @param indexFile file of the persisted index
+	 * @param loader    adds the persisted resources via {@link #add(Resource, float[])}
+	 */
+	public void bulkLoad(File indexFile, Runnable loader) {
+		lock.writeLock().lock();
+		try {
+			deferIndexing = true;
+			try {
+				loader.run();
+			} finally {
+				deferIndexing = false;
+			}
+			int restoredRows = restoreIndex(indexFile);
+			for (int row = restoredRows; row < resources.size(); row++) {
+				index.add(row, scorer);
+			}
+			LOGGER.info("Restored {} and indexed {} embeddings from {}",
+					restoredRows, resources.size() - restoredRows, indexFile.getName());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Persists the index with the keys of the indexed resources.
+	 */
+	public void saveIndex(File indexFile) {
+		lock.readLock().lock();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+			out.writeInt(index.size());
+			for (int row = 0; row < index.size(); row++) {
+				out.writeUTF(keyFunction.apply(resources.get(row)));
+			}
+			index.write(out);
+		} catch (IOException e) {
+			LOGGER.error("Could not save index to {}: {}", indexFile, e.getMessage());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches the resources that are most similar to the query.
+	 * The index searches on the quantized query, the best candidates are rescored exactly on the float rows.
+	 *
+	 * @param query      embedding of the query
+	 * @param maxResults maximum number of returned resources
+	 * @return resources ordered by descending cosine similarity
+	 */
+	public List<T> search(float[] query, int maxResults) {
+		lock.readLock().lock();
+		try {
+			if (query.length != dimension || resources.isEmpty()) {
+				return new ArrayList<>();
+			}
+			float[] normalizedQuery = VectorUtil.normalize(query.clone(), 0, dimension);
+			int[] candidates = index.search(normalizedQuery, maxResults * RESCORE_FACTOR, new QueryScorer(normalizedQuery));
+			TopK topK = new TopK(Math.min(maxResults, candidates.length));
+			for (int row : candidates) {
+				topK.offer(row, VectorUtil.dotProduct(normalizedQuery, 0, floatRows, row * dimension, dimension));
+			}
+			return toResources(topK.sortedRows());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Iterates all resources with their normalized embedding.
+	 */
+	public void forEach(BiConsumer<T, float[]> consumer) {
+		forEachFrom(0, consumer);
+	}
+
+	/**
+	 * Iterates the resources beginning at the given row with their normalized embedding.
+	 */
+	public void forEachFrom(int fromRow, BiConsumer<T, float[]> consumer) {
+		lock.readLock().lock();
+		try {
+			for (int row = fromRow; row < resources.size(); row++) {
+				consumer.accept(resources.get(row), Arrays.copyOfRange(floatRows, row * dimension, (row + 1) * dimension));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return resources.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private int restoreIndex(File indexFile) {
+		if (!indexFile.exists()) return 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			int rows = in.readInt();
+			if (rows > resources.size()) return 0;
+			for (int row = 0; row < rows; row++) {
+				if (!in.readUTF().equals(keyFunction.apply(resources.get(row)))) return 0;
+			}
+			index.read(in);
+			return index.size() == rows ? rows : resetIndex();
+		} catch (IOException e) {
+			LOGGER.warn("Could not restore index from {}, rebuilding it: {}", indexFile, e.getMessage());
+			return resetIndex();
+		}
+	}
+
+	private int resetIndex() {
+		index.clear();
+		return 0;
+	}
+
+	private List<T> toResources(int[] rows) {
+		List<T> result = new ArrayList<>(rows.length);
+		for (int row : rows) {
+			result.add(resources.get(row));
+		}
+		return result;
+	}
+
+	private void ensureCapacity(int rows) {
+		if (scales.length >= rows) return;
+		int newRows = Math.max(INITIAL_CAPACITY, Math.max(rows, scales.length * 2));
+		codes = Arrays.copyOf(codes, newRows * dimension);
+		floatRows = Arrays.copyOf(floatRows, newRows * dimension);
+		scales = Arrays.copyOf(scales, newRows);
+	}
+
+	/**
+	 * Scores the float query against the int8 codes of a row and rows against each other on their codes.
+	 */
+	private class MatrixScorer implements IRowScorer {
+
+		@Override
+		public float similarity(float[] query, int row) {
+			return VectorUtil.dotProduct(query, 0, codes, row * dimension, dimension) * scales[row];
+		}
+
+		@Override
+		public float similarity(int row1, int row2) {
+			return VectorUtil.dotProduct(codes, row1 * dimension, codes, row2 * dimension, dimension)
+					* scales[row1] * scales[row2];
+		}
+	}
+
+	/**
+	 * Scores a query quantized once per search against the int8 codes of the rows.
+	 */
+	private class QueryScorer extends MatrixScorer {
+
+		private final byte[] queryCodes;
+		private final float queryScale;
+
+		private QueryScorer(float[] query) {
+			this.queryCodes = new byte[dimension];
+			this.queryScale = VectorUtil.quantize(query, 0, dimension, queryCodes, 0);
+		}
+
+		@Override
+		public float similarity(float[] query, int row) {
+			return VectorUtil.dotProduct(queryCodes, 0, codes, row * dimension, dimension) * queryScale * scales[row];
+		}
+	}
+}
@@ -0,0 +1,333 @@
+package me.sailex.ai.npc.embedding;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Approximate nearest neighbour index (hierarchical navigable small world graph).
+ * Supports incremental inserts, so the search time stays flat while the store grows.
+ */
+public class HnswIndex implements IVectorIndex {
+
+	private static final int MAGIC = 0x484E5357;
+	private static final int VERSION = 1;
+	private static final int MAX_LEVEL = 16;
+
+	private final int maxConnections;
+	private final int efConstruction;
+	private final int efSearch;
+	private final double levelMultiplier;
+	private final Random random = new Random(428);
+
+	//node -> level -> [neighbour count, neighbours...]
+	private int[][][] graph = new int[64][][];
+	private int size;
+	private int entryPoint = -1;
+	private int maxLevel = -1;
+
+	public HnswIndex() {
+		this(16, 100, 64);
+	}
+
+	/**
+	 * @param maxConnections neighbours per node on the upper levels (twice as many on level 0)
+	 * @param efConstruction candidate list size while inserting
+	 * @param efSearch       candidate list size while searching
+	 */
+	public HnswIndex(int maxConnections, int efConstruction, int efSearch) {
+		this.maxConnections = maxConnections;
+		this.efConstruction = efConstruction;
+		this.efSearch = efSearch;
+		this.levelMultiplier = 1 / Math.log(maxConnections);
+	}
+
+	@Override
+	public void add(int row, IRowScorer scorer) {
+		if (row != size) {
+			throw new IllegalArgumentException("Rows must be added in order, expected " + size + " but got " + row);
+		}
+		int level = randomLevel();
+		ensureCapacity(row + 1);
+		graph[row] = new int[level + 1][];
+		for (int l = 0; l <= level; l++) {
+			graph[row][l] = new int[1 + maxConnections(l)];
+		}
+		size++;
+		if (entryPoint == -1) {
+			entryPoint = row;
+			maxLevel = level;
+			return;
+		}
+
+		Scorer score = other -> scorer.similarity(row, other);
+		int nearest = entryPoint;
+		for (int l = maxLevel; l > level; l--) {
+			nearest = greedySearch(score, nearest, l);
+		}
+		for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+			int[] candidates = searchLayer(score, nearest, efConstruction, l).sortedRows();
+			int[] selected = selectNeighbours(row, candidates, candidates.length, maxConnections(l), scorer);
+			graph[row][l][0] = selected.length;
+			System.arraycopy(selected, 0, graph[row][l], 1, selected.length);
+			for (int neighbour : selected) {
+				connect(neighbour, row, l, scorer);
+			}
+			nearest = candidates[0];
+		}
+		if (level > maxLevel) {
+			maxLevel = level;
+			entryPoint = row;
+		}
+	}
+
+	@Override
+	public int[] search(float[] query, int maxResults, IRowScorer scorer) {
+		if (entryPoint == -1 || maxResults <= 0) return new int[0];
+		Scorer score = row -> scorer.similarity(query, row);
+		int nearest = entryPoint;
+		for (int l = maxLevel; l > 0; l--) {
+			nearest = greedySearch(score, nearest, l);
+		}
+		int[] rows = searchLayer(score, nearest, Math.max(efSearch, maxResults), 0).sortedRows();
+		return rows.length > maxResults ? Arrays.copyOf(rows, maxResults) : rows;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		graph = new int[64][][];
+		size = 0;
+		entryPoint = -1;
+		maxLevel = -1;
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(maxConnections);
+		out.writeInt(size);
+		out.writeInt(entryPoint);
+		out.writeInt(maxLevel);
+		for (int node = 0; node < size; node++) {
+			int[][] levels = graph[node];
+			out.writeByte(levels.length);
+			for (int[] neighbours : levels) {
+				out.writeShort(neighbours[0]);
+				for (int i = 1; i <= neighbours[0]; i++) {
+					out.writeInt(neighbours[i]);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != maxConnections) {
+			throw new IOException("Index was written with a different format or configuration");
+		}
+		clear();
+		int nodes = in.readInt();
+		int readEntryPoint = in.readInt();
+		int readMaxLevel = in.readInt();
+		ensureCapacity(nodes);
+		for (int node = 0; node < nodes; node++) {
+			int levels = in.readUnsignedByte();
+			if (levels == 0 || levels > MAX_LEVEL + 1) throw new IOException("Corrupt index node " + node);
+			graph[node] = new int[levels][];
+			for (int l = 0; l < levels; l++) {
+				int count = in.readUnsignedShort();
+				if (count > maxConnections(l)) throw new IOException("Corrupt index node " + node);
+				int[] neighbours = new int[1 + maxConnections(l)];
+				neighbours[0] = count;
+				for (int i = 1; i <= count; i++) {
+					neighbours[i] = in.readInt();
+					if (neighbours[i] < 0 || neighbours[i] >= nodes) throw new IOException("Corrupt index node " + node);
+				}
+				graph[node][l] = neighbours;
+			}
+		}
+		size = nodes;
+		entryPoint = readEntryPoint;
+		maxLevel = readMaxLevel;
+	}
+
+	private int greedySearch(Scorer score, int start, int level) {
+		int nearest = start;
+		float nearestScore = score.score(start);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			int[] neighbours = graph[nearest][level];
+			for (int i = 1; i <= neighbours[0]; i++) {
+				float neighbourScore = score.score(neighbours[i]);
+				if (neighbourScore > nearestScore) {
+					nearestScore = neighbourScore;
+					nearest = neighbours[i];
+					changed = true;
+				}
+			}
+		}
+		return nearest;
+	}
+
+	private TopK searchLayer(Scorer score, int start, int ef, int level) {
+		BitSet visited = new BitSet(size);
+		CandidateHeap candidates = new CandidateHeap();
+		TopK results = new TopK(ef);
+		float startScore = score.score(start);
+		visited.set(start);
+		candidates.push(start, startScore);
+		results.offer(start, startScore);
+
+		while (!candidates.isEmpty()) {
+			float candidateScore = candidates.peekScore();
+			int candidate = candidates.pop();
+			if (results.isFull() && candidateScore < results.minScore()) break;
+			if (graph[candidate].length <= level) continue;
+
+			int[] neighbours = graph[candidate][level];
+			for (int i = 1; i <= neighbours[0]; i++) {
+				int neighbour = neighbours[i];
+				if (visited.get(neighbour)) continue;
+				visited.set(neighbour);
+				float neighbourScore = score.score(neighbour);
+				if (!results.isFull() || neighbourScore > results.minScore()) {
+					candidates.push(neighbour, neighbourScore);
+					results.offer(neighbour, neighbourScore);
+				}
+			}
+		}
+		return results;
+	}
+
+	private void connect(int node, int neighbour, int level, IRowScorer scorer) {
+		int[] neighbours = graph[node][level];
+		int maxNeighbours = neighbours.length - 1;
+		if (neighbours[0] < maxNeighbours) {
+			neighbours[++neighbours[0]] = neighbour;
+			return;
+		}
+		TopK candidates = new TopK(maxNeighbours + 1);
+		for (int i = 1; i <= neighbours[0]; i++) {
+			candidates.offer(neighbours[i], scorer.similarity(node, neighbours[i]));
+		}
+		candidates.offer(neighbour, scorer.similarity(node, neighbour));
+		int[] sorted = candidates.sortedRows();
+		int[] kept = selectNeighbours(node, sorted, sorted.length, maxNeighbours, scorer);
+		neighbours[0] = kept.length;
+		System.arraycopy(kept, 0, neighbours, 1, kept.length);
+	}
+
+	/**
+	 * Selects neighbours that are more similar to the node than to the already selected ones,
+	 * which keeps links between clusters. Free slots are filled with the most similar skipped candidates.
+	 *
+	 * @param candidates candidates ordered by descending similarity to the node
+	 */
+	private int[] selectNeighbours(int node, int[] candidates, int count, int maxNeighbours, IRowScorer scorer) {
+		int[] selected = new int[Math.min(count, maxNeighbours)];
+		int[] skipped = new int[count];
+		int selectedCount = 0;
+		int skippedCount = 0;
+		for (int i = 0; i < count && selectedCount < selected.length; i++) {
+			int candidate = candidates[i];
+			if (candidate == node) continue;
+			float nodeSimilarity = scorer.similarity(node, candidate);
+			boolean diverse = true;
+			for (int j = 0; j < selectedCount && diverse; j++) {
+				diverse = scorer.similarity(candidate, selected[j]) < nodeSimilarity;
+			}
+			if (diverse) {
+				selected[selectedCount++] = candidate;
+			} else {
+				skipped[skippedCount++] = candidate;
+			}
+		}
+		for (int i = 0; i < skippedCount && selectedCount < selected.length; i++) {
+			selected[selectedCount++] = skipped[i];
+		}
+		return selectedCount == selected.length ? selected : Arrays.copyOf(selected, selectedCount);
+	}
+
+	private int maxConnections(int level) {
+		return level == 0 ? maxConnections * 2 : maxConnections;
+	}
+
+	private int randomLevel() {
+		return Math.min(MAX_LEVEL, (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier));
+	}
+
+	private void ensureCapacity(int nodes) {
+		if (graph.length < nodes) {
+			graph = Arrays.copyOf(graph, Math.max(nodes, graph.length * 2));
+		}
+	}
+
+	@FunctionalInterface
+	private interface Scorer {
+		float score(int row);
+	}
+
+	/**
+	 * Unbounded max-heap of rows by score.
+	 */
+	private static class CandidateHeap {
+		private int[] rows = new int[32];
+		private float[] scores = new float[32];
+		private int size;
+
+		void push(int row, float score) {
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, size * 2);
+				scores = Arrays.copyOf(scores, size * 2);
+			}
+			int index = size++;
+			while (index > 0) {
+				int parent = (index - 1) >>> 1;
+				if (scores[parent] >= score) break;
+				rows[index] = rows[parent];
+				scores[index] = scores[parent];
+				index = parent;
+			}
+			rows[index] = row;
+			scores[index] = score;
+		}
+
+		float peekScore() {
+			return scores[0];
+		}
+
+		int pop() {
+			int top = rows[0];
+			size--;
+			int row = rows[size];
+			float score = scores[size];
+			int index = 0;
+			while (true) {
+				int child = 2 * index + 1;
+				if (child >= size) break;
+				if (child + 1 < size && scores[child + 1] > scores[child]) child++;
+				if (scores[child] <= score) break;
+				rows[index] = rows[child];
+				scores[index] = scores[child];
+				index = child;
+			}
+			rows[index] = row;
+			scores[index] = score;
+			return top;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+	}
+}
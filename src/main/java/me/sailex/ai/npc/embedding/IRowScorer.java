@@ -0,0 +1,17 @@
+package me.sailex.ai.npc.embedding;
+
+/**
+ * Scores rows of an {@link EmbeddingStore} for a {@link IVectorIndex}.
+ */
+public interface IRowScorer {
+
+	/**
+	 * @return similarity between the normalized query and the embedding of the row
+	 */
+	float similarity(float[] query, int row);
+
+	/**
+	 * @return similarity between the embeddings of two rows
+	 */
+	float similarity(int row1, int row2);
+}
@@ -0,0 +1,28 @@
+package me.sailex.ai.npc.embedding;
+
+/**
+ * Computes similarities between float32 embeddings and their int8 codes.
+ */
+public interface ISimilarityKernel {
+
+	/**
+	 * Dot product of two vectors stored at an offset in their arrays.
+	 * Equals the cosine similarity if both vectors are normalized.
+	 */
+	float dotProduct(float[] vec1, int offset1, float[] vec2, int offset2, int length);
+
+	/**
+	 * Dot product of two int8 code vectors, multiply with both scales to get the float dot product.
+	 */
+	int dotProduct(byte[] codes1, int offset1, byte[] codes2, int offset2, int length);
+
+	/**
+	 * Dot product of a float vector and int8 codes, multiply with the scale of the codes to get the dot product.
+	 */
+	float dotProduct(float[] vec, int offset, byte[] codes, int codesOffset, int length);
+
+	/**
+	 * Cosine similarity of two vectors that are not normalized.
+	 */
+	float cosineSimilarity(float[] vec1, float[] vec2);
+}
@@ -0,0 +1,43 @@
+package me.sailex.ai.npc.embedding;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Index over the rows of an {@link EmbeddingStore}.
+ * Rows are added in ascending order. Implementations don't need to be thread safe,
+ * the store guards all calls with its lock.
+ */
+public interface IVectorIndex {
+
+	/**
+	 * Adds the next row of the store to the index.
+	 */
+	void add(int row, IRowScorer scorer);
+
+	/**
+	 * Searches the rows that are most similar to the query.
+	 *
+	 * @param query      normalized query embedding
+	 * @param maxResults maximum number of returned rows
+	 * @return rows ordered by descending similarity
+	 */
+	int[] search(float[] query, int maxResults, IRowScorer scorer);
+
+	/**
+	 * @return number of indexed rows
+	 */
+	int size();
+
+	void clear();
+
+	void write(DataOutputStream out) throws IOException;
+
+	/**
+	 * Reads an index that was written by {@link #write(DataOutputStream)}.
+	 *
+	 * @throws IOException if the data is corrupt or was written by a different index configuration
+	 */
+	void read(DataInputStream in) throws IOException;
+}
@@ -0,0 +1,59 @@
+package me.sailex.ai.npc.embedding;
+
+/**
+ * Plain java similarity kernel. Used if the vector api is not available (java 17 builds).
+ */
+public class ScalarSimilarityKernel implements ISimilarityKernel {
+
+	@Override
+	public float dotProduct(float[] vec1, int offset1, float[] vec2, int offset2, int length) {
+		float sum0 = 0f;
+		float sum1 = 0f;
+		float sum2 = 0f;
+		float sum3 = 0f;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			sum0 += vec1[offset1 + i] * vec2[offset2 + i];
+			sum1 += vec1[offset1 + i + 1] * vec2[offset2 + i + 1];
+			sum2 += vec1[offset1 + i + 2] * vec2[offset2 + i + 2];
+			sum3 += vec1[offset1 + i + 3] * vec2[offset2 + i + 3];
+		}
+		for (; i < length; i++) {
+			sum0 += vec1[offset1 + i] * vec2[offset2 + i];
+		}
+		return sum0 + sum1 + sum2 + sum3;
+	}
+
+	@Override
+	public int dotProduct(byte[] codes1, int offset1, byte[] codes2, int offset2, int length) {
+		int sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += codes1[offset1 + i] * codes2[offset2 + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public float dotProduct(float[] vec, int offset, byte[] codes, int codesOffset, int length) {
+		float sum = 0f;
+		for (int i = 0; i < length; i++) {
+			sum += vec[offset + i] * codes[codesOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public float cosineSimilarity(float[] vec1, float[] vec2) {
+		if (vec1.length != vec2.length) return 0f;
+		float dotProduct = 0f;
+		float norm1 = 0f;
+		float norm2 = 0f;
+		for (int i = 0; i < vec1.length; i++) {
+			dotProduct += vec1[i] * vec2[i];
+			norm1 += vec1[i] * vec1[i];
+			norm2 += vec2[i] * vec2[i];
+		}
+		if (norm1 == 0f || norm2 == 0f) return 0f;
+		return (float) (dotProduct / Math.sqrt((double) norm1 * norm2));
+	}
+}
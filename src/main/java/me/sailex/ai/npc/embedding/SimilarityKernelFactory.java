@@ -0,0 +1,36 @@
+package me.sailex.ai.npc.embedding;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Selects the fastest similarity kernel that is available at runtime.
+ */
+public class SimilarityKernelFactory {
+
+	private static final Logger LOGGER = LogManager.getLogger(SimilarityKernelFactory.class);
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+	private SimilarityKernelFactory() {}
+
+	/**
+	 * Creates the vector api kernel on java 21 builds if the jvm was started with
+	 * {@code --add-modules=jdk.incubator.vector}, otherwise the scalar kernel.
+	 */
+	public static ISimilarityKernel create() {
+		//? if >=1.20.6 {
+		if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+			try {
+				ISimilarityKernel kernel = new VectorSimilarityKernel();
+				LOGGER.info("Using vector api similarity kernel");
+				return kernel;
+			} catch (LinkageError e) {
+				LOGGER.warn("Could not load vector api similarity kernel: {}", e.getMessage());
+			}
+		}
+		//?}
+		LOGGER.info("Using scalar similarity kernel (start the server with --add-modules={} to enable SIMD)",
+				VECTOR_MODULE);
+		return new ScalarSimilarityKernel();
+	}
+}
@@ -0,0 +1,96 @@
+package me.sailex.ai.npc.embedding;
+
+/**
+ * Fixed size min-heap that keeps the rows with the highest scores.
+ * Works on primitive arrays so that searches do not box every score.
+ */
+class TopK {
+
+	private final int[] rows;
+	private final float[] scores;
+	private int size;
+
+	TopK(int capacity) {
+		this.rows = new int[capacity];
+		this.scores = new float[capacity];
+	}
+
+	/**
+	 * Offers a row to the heap. Replaces the lowest scored row if the heap is full.
+	 */
+	void offer(int row, float score) {
+		if (rows.length == 0) return;
+		if (size < rows.length) {
+			rows[size] = row;
+			scores[size] = score;
+			siftUp(size++);
+		} else if (score > scores[0]) {
+			rows[0] = row;
+			scores[0] = score;
+			siftDown(0);
+		}
+	}
+
+	boolean isFull() {
+		return size == rows.length;
+	}
+
+	/**
+	 * @return the lowest score of the heap
+	 */
+	float minScore() {
+		return scores[0];
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Drains the heap.
+	 *
+	 * @return the rows ordered by descending score
+	 */
+	int[] sortedRows() {
+		int[] sorted = new int[size];
+		for (int i = sorted.length - 1; i >= 0; i--) {
+			sorted[i] = rows[0];
+			size--;
+			rows[0] = rows[size];
+			scores[0] = scores[size];
+			siftDown(0);
+		}
+		return sorted;
+	}
+
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (scores[parent] <= scores[index]) return;
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+	private void siftDown(int index) {
+		while (true) {
+			int left = 2 * index + 1;
+			if (left >= size) return;
+			int smallest = left;
+			int right = left + 1;
+			if (right < size && scores[right] < scores[left]) smallest = right;
+			if (scores[index] <= scores[smallest]) return;
+			swap(index, smallest);
+			index = smallest;
+		}
+	}
+
+	private void swap(int a, int b) {
+		int row = rows[a];
+		rows[a] = rows[b];
+		rows[b] = row;
+		float score = scores[a];
+		scores[a] = scores[b];
+		scores[b] = score;
+	}
+}
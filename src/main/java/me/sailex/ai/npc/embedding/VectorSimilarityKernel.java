@@ -0,0 +1,103 @@
+//? if >=1.20.6 {
+package me.sailex.ai.npc.embedding;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Similarity kernel using the incubating jdk vector api (java 21 builds).
+ * Needs the jvm flag {@code --add-modules=jdk.incubator.vector}, see {@link SimilarityKernelFactory}.
+ */
+public class VectorSimilarityKernel implements ISimilarityKernel {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+	//int8 codes are loaded 8 lanes at a time and widened to 256 bit int/float vectors
+	private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_64;
+	private static final VectorSpecies<Integer> WIDE_INT_SPECIES = IntVector.SPECIES_256;
+	private static final VectorSpecies<Float> WIDE_FLOAT_SPECIES = FloatVector.SPECIES_256;
+
+	@Override
+	public float dotProduct(float[] vec1, int offset1, float[] vec2, int offset2, int length) {
+		FloatVector sum = FloatVector.zero(SPECIES);
+		int i = 0;
+		int upperBound = SPECIES.loopBound(length);
+		for (; i < upperBound; i += SPECIES.length()) {
+			FloatVector a = FloatVector.fromArray(SPECIES, vec1, offset1 + i);
+			FloatVector b = FloatVector.fromArray(SPECIES, vec2, offset2 + i);
+			sum = a.fma(b, sum);
+		}
+		float dotProduct = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			dotProduct += vec1[offset1 + i] * vec2[offset2 + i];
+		}
+		return dotProduct;
+	}
+
+	@Override
+	public int dotProduct(byte[] codes1, int offset1, byte[] codes2, int offset2, int length) {
+		IntVector sum = IntVector.zero(WIDE_INT_SPECIES);
+		int i = 0;
+		int upperBound = BYTE_SPECIES.loopBound(length);
+		for (; i < upperBound; i += BYTE_SPECIES.length()) {
+			IntVector a = (IntVector) ByteVector.fromArray(BYTE_SPECIES, codes1, offset1 + i)
+					.convertShape(VectorOperators.B2I, WIDE_INT_SPECIES, 0);
+			IntVector b = (IntVector) ByteVector.fromArray(BYTE_SPECIES, codes2, offset2 + i)
+					.convertShape(VectorOperators.B2I, WIDE_INT_SPECIES, 0);
+			sum = sum.add(a.mul(b));
+		}
+		int dotProduct = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			dotProduct += codes1[offset1 + i] * codes2[offset2 + i];
+		}
+		return dotProduct;
+	}
+
+	@Override
+	public float dotProduct(float[] vec, int offset, byte[] codes, int codesOffset, int length) {
+		FloatVector sum = FloatVector.zero(WIDE_FLOAT_SPECIES);
+		int i = 0;
+		int upperBound = BYTE_SPECIES.loopBound(length);
+		for (; i < upperBound; i += BYTE_SPECIES.length()) {
+			FloatVector a = FloatVector.fromArray(WIDE_FLOAT_SPECIES, vec, offset + i);
+			FloatVector b = (FloatVector) ByteVector.fromArray(BYTE_SPECIES, codes, codesOffset + i)
+					.convertShape(VectorOperators.B2F, WIDE_FLOAT_SPECIES, 0);
+			sum = a.fma(b, sum);
+		}
+		float dotProduct = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			dotProduct += vec[offset + i] * codes[codesOffset + i];
+		}
+		return dotProduct;
+	}
+
+	@Override
+	public float cosineSimilarity(float[] vec1, float[] vec2) {
+		if (vec1.length != vec2.length) return 0f;
+		FloatVector dotSum = FloatVector.zero(SPECIES);
+		FloatVector norm1Sum = FloatVector.zero(SPECIES);
+		FloatVector norm2Sum = FloatVector.zero(SPECIES);
+		int i = 0;
+		int upperBound = SPECIES.loopBound(vec1.length);
+		for (; i < upperBound; i += SPECIES.length()) {
+			FloatVector a = FloatVector.fromArray(SPECIES, vec1, i);
+			FloatVector b = FloatVector.fromArray(SPECIES, vec2, i);
+			dotSum = a.fma(b, dotSum);
+			norm1Sum = a.fma(a, norm1Sum);
+			norm2Sum = b.fma(b, norm2Sum);
+		}
+		float dotProduct = dotSum.reduceLanes(VectorOperators.ADD);
+		float norm1 = norm1Sum.reduceLanes(VectorOperators.ADD);
+		float norm2 = norm2Sum.reduceLanes(VectorOperators.ADD);
+		for (; i < vec1.length; i++) {
+			dotProduct += vec1[i] * vec2[i];
+			norm1 += vec1[i] * vec1[i];
+			norm2 += vec2[i] * vec2[i];
+		}
+		if (norm1 == 0f || norm2 == 0f) return 0f;
+		return (float) (dotProduct / Math.sqrt((double) norm1 * norm2));
+	}
+}
+//?}
@@ -1,5 +1,7 @@
 package me.sailex.ai.npc.event
 
+import me.sailex.ai.npc.context.ContextDiffer
+import me.sailex.ai.npc.embedding.EmbeddingContext
 import me.sailex.ai.npc.history.ConversationHistory
 import me.sailex.ai.npc.llm.IFunctionCaller
 import me.sailex.ai.npc.llm.function_calling.IFunctionManager
@@ -11,22 +13,33 @@ import java.util.concurrent.Executors
 class NPCEventHandler<T>(
     private val llmClient: IFunctionCaller<T>,
     private val history: ConversationHistory,
-    private val functionManager: IFunctionManager<T>
+    private val functionManager: IFunctionManager<T>,
+    private val contextDiffer: ContextDiffer
 ): IEventHandler {
     private val executorService: ExecutorService = Executors.newSingleThreadExecutor()
 
     /**
      * Processes an event asynchronously by allowing call actions from llm using the specified prompt.
      * Saves the prompt in conversation history.
+     * All embeddings of the turn are shared via an [EmbeddingContext], so every text is embedded only once.
+     * The world context is shown in full once, afterward only its changes (see [ContextDiffer]).
+     * The differ and function manager of this NPC are bound to the event thread during the turn,
+     * so the function calls act for this NPC.
      *
      * @param prompt  prompt of a user or system e.g. chatmessage of a player
      */
     override fun onEvent(prompt: String) {
         CompletableFuture.runAsync({
             LogUtil.info("onEvent: $prompt", true)
-            history.add(prompt)
-            val relevantFunctions = functionManager.getRelevantFunctions(prompt)
-            history.add(llmClient.callFunctions(prompt, relevantFunctions))
+            EmbeddingContext.open().use {
+                contextDiffer.startTurn().use {
+                    functionManager.startTurn().use {
+                        history.add(prompt)
+                        val relevantFunctions = functionManager.getRelevantFunctions(prompt)
+                        history.add(llmClient.callFunctions(prompt, relevantFunctions))
+                    }
+                }
+            }
         }, executorService)
             .exceptionally {
                 LogUtil.error("Unexpected error occurred handling event: $it", true)
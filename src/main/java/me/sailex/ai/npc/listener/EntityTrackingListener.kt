@@ -0,0 +1,23 @@
+package me.sailex.ai.npc.listener
+
+import me.sailex.ai.npc.context.EntityTracker
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents
+
+/**
+ * Notifies the entity tracker about loaded and unloaded entities and clears it when the server stopped.
+ */
+class EntityTrackingListener : IEventListener {
+
+    override fun register() {
+        ServerEntityEvents.ENTITY_LOAD.register { entity, world ->
+            EntityTracker.onEntityLoad(entity, world)
+        }
+        ServerEntityEvents.ENTITY_UNLOAD.register { entity, world ->
+            EntityTracker.onEntityUnload(entity, world)
+        }
+        ServerLifecycleEvents.SERVER_STOPPED.register {
+            EntityTracker.clear()
+        }
+    }
+}
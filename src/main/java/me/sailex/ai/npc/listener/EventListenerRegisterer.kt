@@ -16,7 +16,9 @@ class EventListenerRegisterer(
             BlockInteractionListener(npcs),
             EntityLoadListener(npcs),
             ChatMessageListener(npcs),
-            CombatEventListener(npcs)
+            CombatEventListener(npcs),
+            WorldChangeListener(),
+            EntityTrackingListener()
         ).forEach { listener -> listener.register() }
     }
 }
@@ -0,0 +1,27 @@
+package me.sailex.ai.npc.listener
+
+import me.sailex.ai.npc.callback.BlockChangeCallback
+import me.sailex.ai.npc.context.BlockSummaryCache
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents
+
+/**
+ * Invalidates the cached block summaries of changed, loaded and unloaded chunks.
+ */
+class WorldChangeListener : IEventListener {
+
+    override fun register() {
+        BlockChangeCallback.EVENT.register { world, pos, oldState, newState ->
+            BlockSummaryCache.invalidateBlock(world, pos, oldState, newState)
+        }
+        ServerChunkEvents.CHUNK_LOAD.register { world, chunk ->
+            BlockSummaryCache.invalidateChunk(world, chunk.pos)
+        }
+        ServerChunkEvents.CHUNK_UNLOAD.register { world, chunk ->
+            BlockSummaryCache.invalidateChunk(world, chunk.pos)
+        }
+        ServerWorldEvents.UNLOAD.register { _, world ->
+            BlockSummaryCache.removeWorld(world)
+        }
+    }
+}
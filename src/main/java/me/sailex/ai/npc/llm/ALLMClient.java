@@ -1,8 +1,12 @@
 package me.sailex.ai.npc.llm;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import lombok.Setter;
+import me.sailex.ai.npc.embedding.EmbeddingBatcher;
+import me.sailex.ai.npc.embedding.EmbeddingCache;
+import me.sailex.ai.npc.embedding.EmbeddingContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,10 +15,85 @@ public abstract class ALLMClient<T> implements IFunctionCaller<T> {
 
 	protected static final Logger LOGGER = LogManager.getLogger(ALLMClient.class);
 
-	protected double[] convertEmbedding(List<List<Double>> embedding) {
-		return embedding.stream()
-				.flatMapToDouble(innerList -> innerList.stream().mapToDouble(Double::doubleValue))
-				.toArray();
+	private final EmbeddingCache embeddingCache;
+	private final EmbeddingBatcher embeddingBatcher;
+
+	protected ALLMClient(EmbeddingCache embeddingCache, EmbeddingBatcher embeddingBatcher) {
+		this.embeddingCache = embeddingCache;
+		this.embeddingBatcher = embeddingBatcher;
+	}
+
+	/**
+	 * Generates the embedding or returns it from the embedding cache if the text was already vectorized.
+	 */
+	@Override
+	public float[] generateEmbedding(List<String> prompt) {
+		return generateEmbeddings(List.of(String.join("\n", prompt))).getFirst();
+	}
+
+	/**
+	 * Generates the embeddings of all texts that are not cached in one request.
+	 * Texts that were already embedded in the current {@link EmbeddingContext} are served from it.
+	 * The request is batched with the requests of the other NPCs by the {@link EmbeddingBatcher},
+	 * the embeddings of a batch are written to the cache once when the batch completes.
+	 */
+	@Override
+	public List<float[]> generateEmbeddings(List<String> texts) {
+		String model = getEmbeddingModel();
+		EmbeddingContext context = EmbeddingContext.current();
+		List<float[]> embeddings = new ArrayList<>(texts.size());
+		List<String> missingTexts = new ArrayList<>();
+		for (String text : texts) {
+			float[] cachedEmbedding = context != null ? context.get(text) : null;
+			if (cachedEmbedding == null) {
+				cachedEmbedding = embeddingCache.get(model, text);
+				if (cachedEmbedding != null && context != null) context.put(text, cachedEmbedding);
+			}
+			embeddings.add(cachedEmbedding);
+			if (cachedEmbedding == null) missingTexts.add(text);
+		}
+		if (missingTexts.isEmpty()) return embeddings;
+
+		List<float[]> requestedEmbeddings = embeddingBatcher.embed(
+				getClass().getSimpleName() + ":" + model, missingTexts, batchTexts -> requestAndCache(model, batchTexts));
+		int requestedIndex = 0;
+		for (int i = 0; i < embeddings.size(); i++) {
+			if (embeddings.get(i) != null) continue;
+			float[] embedding = requestedIndex < requestedEmbeddings.size()
+					? requestedEmbeddings.get(requestedIndex)
+					: new float[] {};
+			requestedIndex++;
+			if (context != null) context.put(texts.get(i), embedding);
+			embeddings.set(i, embedding);
+		}
+		return embeddings;
+	}
+
+	private List<float[]> requestAndCache(String model, List<String> texts) {
+		List<float[]> embeddings = requestEmbeddings(texts);
+		for (int i = 0; i < Math.min(texts.size(), embeddings.size()); i++) {
+			embeddingCache.put(model, texts.get(i), embeddings.get(i));
+		}
+		return embeddings;
+	}
+
+	/**
+	 * Requests the embeddings of the texts from the llm service in one call
+	 *
+	 * @return one embedding per text or an empty list if the request failed
+	 */
+	protected abstract List<float[]> requestEmbeddings(List<String> texts);
+
+	protected List<float[]> convertEmbeddings(List<List<Double>> embeddings) {
+		List<float[]> converted = new ArrayList<>(embeddings.size());
+		for (List<Double> embedding : embeddings) {
+			float[] vector = new float[embedding.size()];
+			for (int i = 0; i < vector.length; i++) {
+				vector[i] = embedding.get(i).floatValue();
+			}
+			converted.add(vector);
+		}
+		return converted;
 	}
 
 	@Override
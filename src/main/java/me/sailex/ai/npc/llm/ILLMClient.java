@@ -8,9 +8,22 @@ public interface ILLMClient {
 	 * Generate an embedding for a given prompt
 	 *
 	 * @param prompt the text prompt that needs to get vectorized
-	 * @return the embedding as double array
+	 * @return the embedding as float array
 	 */
-	double[] generateEmbedding(List<String> prompt);
+	float[] generateEmbedding(List<String> prompt);
+
+	/**
+	 * @return name of the model that generates the embeddings
+	 */
+	String getEmbeddingModel();
+
+	/**
+	 * Generate the embeddings of multiple texts in one request
+	 *
+	 * @param texts the texts that need to get vectorized
+	 * @return one embedding per text, empty if the text could not be vectorized
+	 */
+	List<float[]> generateEmbeddings(List<String> texts);
 
 	/**
 	 * Check if the service is reachable
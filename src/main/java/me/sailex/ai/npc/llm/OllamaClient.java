@@ -9,10 +9,16 @@ import io.github.ollama4j.tools.Tools;
 import io.github.ollama4j.types.OllamaModelType;
 import me.sailex.ai.npc.exception.LLMServiceException;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.*;
 
 import lombok.Setter;
+import me.sailex.ai.npc.context.ContextDiffer;
+import me.sailex.ai.npc.embedding.EmbeddingBatcher;
+import me.sailex.ai.npc.embedding.EmbeddingCache;
 import me.sailex.ai.npc.util.LogUtil;
 import org.apache.commons.lang3.StringUtils;
 
@@ -22,13 +28,18 @@ public class OllamaClient extends ALLMClient<Tools.ToolSpecification> {
 	private OllamaAPI ollamaAPI;
 	private final ExecutorService service;
 	private final String model;
+	//messages of the previous turns, only used by the event thread of the NPC
+	private final Deque<List<OllamaChatMessage>> previousTurns = new ArrayDeque<>();
 
 	/**
 	 * Constructor for OllamaClient.
 	 *
 	 * @param url  the ollama url
+	 * @param embeddingCache  cache of generated embeddings
+	 * @param embeddingBatcher  batches the embedding requests of all NPCs
 	 */
-	public OllamaClient(String url) {
+	public OllamaClient(String url, EmbeddingCache embeddingCache, EmbeddingBatcher embeddingBatcher) {
+		super(embeddingCache, embeddingBatcher);
 		this.ollamaAPI = new OllamaAPI(url);
 		this.model = "llama3.2:3b";
 		this.service = Executors.newFixedThreadPool(3);
@@ -62,6 +73,8 @@ public class OllamaClient extends ALLMClient<Tools.ToolSpecification> {
 	/**
 	 * Sends the provided prompt and functions to Ollama API.
 	 * Executes functions called by the LLM.
+	 * The messages of the previous turns (with the tool results) are sent with the prompt,
+	 * so the model sees the world context the {@link ContextDiffer} formats the changes against.
 	 *
 	 * @param   prompt    the event prompt
 	 * @param   functions relevant functions that matches to the prompt
@@ -72,21 +85,39 @@ public class OllamaClient extends ALLMClient<Tools.ToolSpecification> {
 		try {
 			ollamaAPI.registerTools(functions);
 
+			List<OllamaChatMessage> messages = new ArrayList<>();
+			previousTurns.forEach(messages::addAll);
+			int previousMessages = messages.size();
 			OllamaChatRequest toolRequest = OllamaChatRequestBuilder.getInstance(model)
+				.withMessages(messages)
 				.withMessage(OllamaChatMessageRole.USER, prompt)
 				.build();
 			OllamaChatResult response = ollamaAPI.chat(toolRequest);
 
-			return formatChatHistory(response.getChatHistory());
+			//the chat history contains the sent messages, the tool results and the answer
+			List<OllamaChatMessage> history = response.getChatHistory();
+			List<OllamaChatMessage> turnMessages =
+					new ArrayList<>(history.subList(Math.min(previousMessages, history.size()), history.size()));
+			keepTurn(turnMessages);
+			return formatChatHistory(turnMessages);
 		} catch (JacksonException e) {
 			LOGGER.warn("LLM has not called any functions for prompt: {}", prompt);
 		} catch (Exception e) {
-			Thread.currentThread().interrupt();
+			if (e instanceof InterruptedException) Thread.currentThread().interrupt();
 			LOGGER.error("Could not generate response / execute functions for prompt: {}", prompt, e);
 		}
+		//the model didn't get the results of this turn
+		ContextDiffer.current().reset();
 		return StringUtils.EMPTY;
 	}
 
+	private void keepTurn(List<OllamaChatMessage> turnMessages) {
+		previousTurns.addLast(turnMessages);
+		while (previousTurns.size() > ContextDiffer.VISIBLE_TURNS - 1) {
+			previousTurns.removeFirst();
+		}
+	}
+
 	private String formatChatHistory(List<OllamaChatMessage> history) {
 		StringBuilder formattedHistory = new StringBuilder();
 		history.stream()
@@ -105,21 +136,26 @@ public class OllamaClient extends ALLMClient<Tools.ToolSpecification> {
 	}
 
 	@Override
-	public double[] generateEmbedding(List<String> prompt) {
+	public String getEmbeddingModel() {
+		return OllamaModelType.NOMIC_EMBED_TEXT;
+	}
+
+	@Override
+	protected List<float[]> requestEmbeddings(List<String> texts) {
 		return CompletableFuture.supplyAsync(() -> {
 				try {
-					OllamaEmbedResponseModel responseModel = ollamaAPI.embed(OllamaModelType.NOMIC_EMBED_TEXT, prompt);
-					return convertEmbedding(responseModel.getEmbeddings());
+					OllamaEmbedResponseModel responseModel = ollamaAPI.embed(getEmbeddingModel(), texts);
+					return convertEmbeddings(responseModel.getEmbeddings());
 				} catch (Exception e) {
-					Thread.currentThread().interrupt();
+					if (e instanceof InterruptedException) Thread.currentThread().interrupt();
 					throw new CompletionException(
-							"Error generating embedding for prompt: " + prompt, e);
+							"Error generating embeddings for " + texts.size() + " texts: " + texts.getFirst(), e);
 				}
 			},
 				service)
 		.exceptionally(exception -> {
 			LOGGER.error(exception.getMessage());
-			return new double[] {};
+			return List.of();
 		})
 		.join();
 	}
@@ -9,28 +9,43 @@ import io.github.sashirestela.openai.domain.chat.ChatMessage;
 import io.github.sashirestela.openai.domain.chat.ChatRequest;
 import io.github.sashirestela.openai.domain.embedding.EmbeddingFloat;
 import io.github.sashirestela.openai.domain.embedding.EmbeddingRequest;
+import me.sailex.ai.npc.context.ContextDiffer;
+import me.sailex.ai.npc.embedding.EmbeddingBatcher;
+import me.sailex.ai.npc.embedding.EmbeddingCache;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class OpenAiClient extends ALLMClient<FunctionDef> {
 
+	private static final String EMBEDDING_MODEL = "text-embedding-3-small";
+	private static final int MAX_TOOL_ROUNDS = 5;
+
 	private final SimpleOpenAI openAiService;
 	private final String openAiModel;
 
 	private final FunctionExecutor functionExecutor;
+	//messages of the previous turns, only used by the event thread of the NPC
+	private final Deque<List<ChatMessage>> previousTurns = new ArrayDeque<>();
 
 	/**
 	 * Constructor for OpenAiClient.
 	 *
 	 * @param apiKey  the api key
+	 * @param embeddingCache  cache of generated embeddings
+	 * @param embeddingBatcher  batches the embedding requests of all NPCs
 	 */
 	public OpenAiClient(
 			String apiKey,
-			String baseUrl
+			String baseUrl,
+			EmbeddingCache embeddingCache,
+			EmbeddingBatcher embeddingBatcher
 	) {
+		super(embeddingCache, embeddingBatcher);
 		this.openAiModel = "gpt-4o-mini";
 		this.openAiService =
 				SimpleOpenAI.builder().apiKey(apiKey).baseUrl(baseUrl).build();
@@ -39,6 +54,8 @@ public class OpenAiClient extends ALLMClient<FunctionDef> {
 
 	/**
 	 * Executes functions that are called by openai based on the prompt and registered functions.
+	 * The messages of the previous turns (with the tool results) are sent with the prompt,
+	 * so the model sees the world context the {@link ContextDiffer} formats the changes against.
 	 *
 	 * @param 	prompt 	   the prompt
 	 * @param 	functions  functions relevant functions that matches to the prompt
@@ -48,66 +65,83 @@ public class OpenAiClient extends ALLMClient<FunctionDef> {
 	public String callFunctions(String prompt, List<FunctionDef> functions) {
 		try {
 			StringBuilder calledFunctions = new StringBuilder();
+			List<ChatMessage> turnMessages = new ArrayList<>();
+			turnMessages.add(ChatMessage.UserMessage.of(prompt));
+			functionExecutor.enrollFunctions(functions);
 
-            ChatMessage.ResponseMessage responseMessage;
-           	for (int i = 0; i < functions.size(); i++) {
-				functionExecutor.enrollFunctions(functions);
-                ChatRequest chatRequest = ChatRequest.builder()
-                        .model(openAiModel)
+			for (int i = 0; i < MAX_TOOL_ROUNDS; i++) {
+				List<ChatMessage> messages = new ArrayList<>();
+				previousTurns.forEach(messages::addAll);
+				messages.addAll(turnMessages);
+				ChatRequest chatRequest = ChatRequest.builder()
+						.model(openAiModel)
 						.tools(functionExecutor.getToolFunctions())
-                        .message(ChatMessage.UserMessage.of(prompt))
-                        .build();
+						.messages(messages)
+						.build();
 
-                responseMessage = openAiService
+				ChatMessage.ResponseMessage responseMessage = openAiService
 						.chatCompletions()
 						.create(chatRequest)
 						.get(10, TimeUnit.SECONDS)
 						.firstMessage();
+				turnMessages.add(responseMessage);
 
 				List<ToolCall> toolCalls = responseMessage.getToolCalls();
 				if (toolCalls == null || toolCalls.isEmpty()) {
 					break;
 				}
-				ToolCall toolCall = toolCalls.getFirst();
-				calledFunctions.append(toolCall.getFunction().getName())
-						.append(" - args: ")
-						.append(toolCall.getFunction().getArguments())
-						.append(StringUtils.SPACE);
-				executeFunctionCalls(toolCall);
-				removeCalledFunctions(functions, toolCall.getFunction().getName());
-            }
+				//every tool call of the response needs a tool message
+				for (ToolCall toolCall : toolCalls) {
+					String result = String.valueOf(executeFunctionCalls(toolCall));
+					turnMessages.add(ChatMessage.ToolMessage.of(result, toolCall.getId()));
+					calledFunctions.append(toolCall.getFunction().getName())
+							.append(" - args: ")
+							.append(toolCall.getFunction().getArguments())
+							.append(" - result: ")
+							.append(result)
+							.append(StringUtils.SPACE);
+				}
+			}
+			keepTurn(turnMessages);
 			return calledFunctions.toString();
-        } catch (Exception e) {
+		} catch (Exception e) {
 			LOGGER.error("Could not generate response / execute functions for prompt: {}", prompt, e);
-			Thread.currentThread().interrupt();
+			if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+			//the model didn't get the results of this turn
+			ContextDiffer.current().reset();
 			return StringUtils.EMPTY;
 		}
 	}
 
-	private void removeCalledFunctions(List<FunctionDef> functions, String functionName) {
-		List<FunctionDef> functionsToRemove = new ArrayList<>();
-		functions.forEach(func -> {
-			if (func.getName().equals(functionName)) {
-				functionsToRemove.add(func);
-			}
-		});
-		functions.removeAll(functionsToRemove);
+	private void keepTurn(List<ChatMessage> turnMessages) {
+		previousTurns.addLast(turnMessages);
+		while (previousTurns.size() > ContextDiffer.VISIBLE_TURNS - 1) {
+			previousTurns.removeFirst();
+		}
 	}
 
-	private void executeFunctionCalls(ToolCall toolCall) {
+	/**
+	 * @return the result of the function (e.g. the outcome of the action)
+	 */
+	private Object executeFunctionCalls(ToolCall toolCall) {
 		FunctionCall function = toolCall.getFunction();
 		LOGGER.info("Executed function: {} - {}", function.getName(), function.getArguments());
-		functionExecutor.execute(function);
+		return functionExecutor.execute(function);
+	}
+
+	@Override
+	public String getEmbeddingModel() {
+		return EMBEDDING_MODEL;
 	}
 
 	@Override
-	public double[] generateEmbedding(List<String> prompt) {
+	protected List<float[]> requestEmbeddings(List<String> texts) {
 		try {
-			return convertEmbedding(openAiService
+			return convertEmbeddings(openAiService
 					.embeddings()
 					.create(EmbeddingRequest.builder()
-							.model("text-embedding-3-small")
-							.input(prompt)
+							.model(EMBEDDING_MODEL)
+							.input(texts)
 							.build())
 					.get(10, TimeUnit.SECONDS)
 					.getData()
@@ -115,9 +149,9 @@ public class OpenAiClient extends ALLMClient<FunctionDef> {
 					.map(EmbeddingFloat::getEmbedding)
 					.toList());
 		} catch (Exception e) {
-			Thread.currentThread().interrupt();
-			LOGGER.error("Could not generate embedding for prompt: {}", prompt.getFirst(), e);
-			return new double[] {};
+			if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+			LOGGER.error("Could not generate embeddings for {} texts: {}", texts.size(), texts.getFirst(), e);
+			return List.of();
 		}
 	}
 
@@ -1,32 +1,50 @@
 package me.sailex.ai.npc.llm.function_calling;
 
+import me.sailex.ai.npc.action.ActionResult;
+import me.sailex.ai.npc.context.ContextDiffer;
 import me.sailex.ai.npc.database.resources.ResourcesProvider;
+import me.sailex.ai.npc.embedding.EmbeddingStore;
 import me.sailex.ai.npc.history.ConversationHistory;
 import me.sailex.ai.npc.NPCController;
 import me.sailex.ai.npc.llm.ILLMClient;
 import me.sailex.ai.npc.llm.function_calling.constant.Function;
 import me.sailex.ai.npc.model.database.LLMFunction;
-import me.sailex.ai.npc.model.database.Resource;
-import me.sailex.ai.npc.util.ResourceRecommender;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Base of the function managers of the llm services.
+ * The functions are static (the llm libraries instantiate or call them without the manager), so the manager
+ * of the NPC whose turn is handled is bound to the event thread by {@link #startTurn()} and the functions
+ * read the state of that NPC through {@link #controller()}, {@link #npcEntity()}, {@link #history()}
+ * and {@link #resourcesProvider()}.
+ */
 public class AFunctionManager<T> implements IFunctionManager<T> {
 
-    protected List<LLMFunction> vectorizedFunctions;
+    private static final ThreadLocal<AFunctionManager<?>> CURRENT = new ThreadLocal<>();
+
+    protected final EmbeddingStore<LLMFunction> vectorizedFunctions;
 
     //functions that must always be included in the llm request
     protected static final List<String> NEEDED_FUNCTIONS = List.of(Function.Name.CHAT);
+    //blocks returned by the find blocks function if the llm doesn't specify the number
+    protected static final int DEFAULT_FOUND_BLOCKS = 5;
+    //seconds a function waits for the outcome of its action before it only reports the action as started
+    private static final int ACTION_RESULT_TIMEOUT_SECONDS = 3;
     protected final List<LLMFunction> neededFunctions;
 
     protected final ILLMClient llmClient;
 
-    protected static NPCController controller;
-    protected static ResourcesProvider resourcesProvider;
-    protected static ServerPlayerEntity npcEntity;
-    protected static ConversationHistory history;
+    private final NPCController controller;
+    private final ResourcesProvider resourcesProvider;
+    private final ServerPlayerEntity npcEntity;
+    private final ConversationHistory history;
 
     protected AFunctionManager(
         ResourcesProvider resourcesProvider,
@@ -35,32 +53,101 @@ public class AFunctionManager<T> implements IFunctionManager<T> {
         ConversationHistory history,
         ILLMClient llmClient
     ) {
-        AFunctionManager.resourcesProvider = resourcesProvider;
-        AFunctionManager.history = history;
-        AFunctionManager.controller = controller;
-        AFunctionManager.npcEntity = npcEntity;
+        this.resourcesProvider = resourcesProvider;
+        this.history = history;
+        this.controller = controller;
+        this.npcEntity = npcEntity;
         this.llmClient = llmClient;
 
-        this.vectorizedFunctions = new ArrayList<>();
+        this.vectorizedFunctions = new EmbeddingStore<>();
         this.neededFunctions = new ArrayList<>();
     }
 
-    protected List<Resource> getRelevantResources(String prompt) {
-        List<Resource> relevantFunctions = ResourceRecommender.getMostRelevantResources(
-                llmClient, prompt, vectorizedFunctions, 2, 0.55
+    @Override
+    public ContextDiffer.Turn startTurn() {
+        AFunctionManager<?> previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    private static AFunctionManager<?> current() {
+        AFunctionManager<?> manager = CURRENT.get();
+        if (manager == null) {
+            throw new IllegalStateException("Function called outside the turn of a NPC");
+        }
+        return manager;
+    }
+
+    protected static NPCController controller() {
+        return current().controller;
+    }
+
+    protected static ServerPlayerEntity npcEntity() {
+        return current().npcEntity;
+    }
+
+    protected static ConversationHistory history() {
+        return current().history;
+    }
+
+    protected static ResourcesProvider resourcesProvider() {
+        return current().resourcesProvider;
+    }
+
+    protected List<LLMFunction> getRelevantResources(String prompt) {
+        List<LLMFunction> relevantFunctions = vectorizedFunctions.search(
+                llmClient.generateEmbedding(List.of(prompt)), 2
         );
         relevantFunctions.addAll(neededFunctions);
         return relevantFunctions;
     }
 
-    protected void addVectorizedFunction(LLMFunction function) {
+    /**
+     * @param embedding embedding of the function description, functions without embedding are skipped
+     */
+    protected void addVectorizedFunction(LLMFunction function, float[] embedding) {
         if (NEEDED_FUNCTIONS.contains(function.getName())) {
             this.neededFunctions.add(function);
-        } else {
-            this.vectorizedFunctions.add(function);
+        } else if (embedding != null) {
+            this.vectorizedFunctions.add(function, embedding);
         }
     }
 
+    /**
+     * Waits for the outcome of an action. Actions that take longer add their outcome to the history
+     * of the calling NPC when they finish.
+     *
+     * @param startedMessage returned if the action is still running
+     */
+    protected static String awaitResult(CompletableFuture<ActionResult> result, String startedMessage) {
+        ConversationHistory npcHistory = history();
+        try {
+            return result.get(ACTION_RESULT_TIMEOUT_SECONDS, TimeUnit.SECONDS).message();
+        } catch (TimeoutException e) {
+            result.thenAcceptAsync(actionResult -> npcHistory.add(actionResult.message()));
+            return startedMessage + " (still running, " + Function.Name.GET_NPC_STATE + " shows its progress)";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return startedMessage;
+        } catch (ExecutionException e) {
+            return startedMessage + " failed: " + e.getCause().getMessage();
+        }
+    }
+
+    /**
+     * Formats the running action of the calling NPC with its progress, for the state functions.
+     */
+    protected static String formatCurrentAction() {
+        String action = controller().describeCurrentAction();
+        return "- current action: " + (action != null ? action : "none") + "\n";
+    }
+
     @Override
     public List<T> getRelevantFunctions(String prompt) {
         throw new UnsupportedOperationException("Must be implemented in child function manager");
@@ -0,0 +1,58 @@
+package me.sailex.ai.npc.llm.function_calling;
+
+import me.sailex.ai.npc.llm.ILLMClient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide embeddings of the function descriptions, shared by the function managers of all NPCs.
+ * The descriptions are vectorized once per embedding model in one batched request,
+ * the embeddings are persisted by the embedding cache of the llm client.
+ */
+public class FunctionEmbeddingRegistry {
+
+    private static final Logger LOGGER = LogManager.getLogger(FunctionEmbeddingRegistry.class);
+    private static final Map<String, Map<String, float[]>> EMBEDDINGS_BY_MODEL = new ConcurrentHashMap<>();
+
+    private FunctionEmbeddingRegistry() {}
+
+    /**
+     * Gets the embeddings of the function descriptions, vectorizes the ones that are not registered yet.
+     *
+     * @param llmClient    client that generates the embeddings
+     * @param descriptions descriptions of the functions
+     * @return embeddings by description, descriptions that could not be vectorized are missing
+     */
+    public static Map<String, float[]> getEmbeddings(ILLMClient llmClient, List<String> descriptions) {
+        Map<String, float[]> embeddings = EMBEDDINGS_BY_MODEL.computeIfAbsent(
+                llmClient.getEmbeddingModel(), model -> new ConcurrentHashMap<>());
+        synchronized (embeddings) {
+            List<String> missingDescriptions = descriptions.stream()
+                    .distinct()
+                    .filter(description -> !embeddings.containsKey(description))
+                    .toList();
+            if (!missingDescriptions.isEmpty()) {
+                List<float[]> generatedEmbeddings = llmClient.generateEmbeddings(missingDescriptions);
+                int registered = 0;
+                for (int i = 0; i < Math.min(missingDescriptions.size(), generatedEmbeddings.size()); i++) {
+                    float[] embedding = generatedEmbeddings.get(i);
+                    //failed embeddings are empty, they are not registered so they are generated again next time
+                    if (embedding.length == 0) {
+                        continue;
+                    }
+                    embeddings.put(missingDescriptions.get(i), embedding);
+                    registered++;
+                }
+                LOGGER.info("Registered {} function embeddings for model {}",
+                        registered, llmClient.getEmbeddingModel());
+            }
+        }
+        return Collections.unmodifiableMap(embeddings);
+    }
+
+}
@@ -1,5 +1,7 @@
 package me.sailex.ai.npc.llm.function_calling;
 
+import me.sailex.ai.npc.context.ContextDiffer;
+
 import java.util.List;
 
 public interface IFunctionManager<T> {
@@ -8,4 +10,10 @@ public interface IFunctionManager<T> {
 
     void vectorizeFunctions(List<T> functions);
 
+    /**
+     * Binds the manager to the current thread until the returned turn is closed, the functions called
+     * during the turn act for the NPC of this manager.
+     */
+    ContextDiffer.Turn startTurn();
+
 }
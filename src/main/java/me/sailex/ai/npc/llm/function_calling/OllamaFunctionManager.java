@@ -4,7 +4,12 @@ import io.github.ollama4j.tools.ToolFunction;
 import io.github.ollama4j.tools.Tools;
 import static io.github.ollama4j.tools.Tools.PromptFuncDefinition;
 
+import me.sailex.ai.npc.action.ActionType;
+import me.sailex.ai.npc.action.MiningJob;
+import me.sailex.ai.npc.action.NPCAction;
+import me.sailex.ai.npc.context.ContextDiffer;
 import me.sailex.ai.npc.context.ContextGenerator;
+import me.sailex.ai.npc.context.EntityCategory;
 import me.sailex.ai.npc.database.resources.ResourcesProvider;
 import me.sailex.ai.npc.history.ConversationHistory;
 import me.sailex.ai.npc.llm.OllamaClient;
@@ -51,6 +56,10 @@ public class OllamaFunctionManager extends AFunctionManager<Tools.ToolSpecificat
                 .withProperty(Property.Name.Y, Tools.PromptFuncDefinition.Property.builder().type("int").required(true).build())
                 .withProperty(Property.Name.Z, Tools.PromptFuncDefinition.Property.builder().type("int").required(true).build())
                 .build(), List.of(Property.Name.X, Property.Name.Y, Property.Name.Z)),
+            defineFunction(Function.Name.MINE_BLOCKS, Function.Description.MINE_BLOCKS, NPCFunction::mineBlocks, new Tools.PropsBuilder()
+                .withProperty(Property.Name.BLOCK_NAME, Tools.PromptFuncDefinition.Property.builder().type("string").description(Property.Description.MINED_BLOCK_NAME).required(true).build())
+                .withProperty(Property.Name.COUNT, Tools.PromptFuncDefinition.Property.builder().type("int").description(Property.Description.COUNT).required(true).build())
+                .build(), List.of(Property.Name.BLOCK_NAME, Property.Name.COUNT)),
             defineFunction(Function.Name.ATTACK, Function.Description.ATTACK, NPCFunction::attack, new Tools.PropsBuilder()
                 .withProperty(Property.Name.ENTITY_ID, Tools.PromptFuncDefinition.Property.builder().type("int").description(Property.Description.ENTITY_ID).required(true).build())
                 .build(), List.of(Property.Name.ENTITY_ID)),
@@ -61,7 +70,15 @@ public class OllamaFunctionManager extends AFunctionManager<Tools.ToolSpecificat
                 .withProperty(Property.Name.SLOT, Tools.PromptFuncDefinition.Property.builder().type("int").description(Property.Description.SLOT).required(true).build())
                 .build(), List.of(Property.Name.SLOT)),
             defineVoidFunction(Function.Name.GET_BLOCKS, Function.Description.GET_BLOCKS, NPCFunction::getBlocks),
-            defineVoidFunction(Function.Name.GET_ENTITIES, Function.Description.GET_ENTITIES, NPCFunction::getEntities),
+            defineFunction(Function.Name.FIND_BLOCKS, Function.Description.FIND_BLOCKS, NPCFunction::findBlocks, new Tools.PropsBuilder()
+                .withProperty(Property.Name.BLOCK_NAME, Tools.PromptFuncDefinition.Property.builder().type("string").description(Property.Description.BLOCK_NAME).required(true).build())
+                .withProperty(Property.Name.TOOL, Tools.PromptFuncDefinition.Property.builder().type("string").description(Property.Description.TOOL).required(false).build())
+                .withProperty(Property.Name.RADIUS, Tools.PromptFuncDefinition.Property.builder().type("int").description(Property.Description.RADIUS).required(false).build())
+                .withProperty(Property.Name.MAX_RESULTS, Tools.PromptFuncDefinition.Property.builder().type("int").description(Property.Description.MAX_RESULTS).required(false).build())
+                .build(), List.of(Property.Name.BLOCK_NAME)),
+            defineFunction(Function.Name.GET_ENTITIES, Function.Description.GET_ENTITIES, NPCFunction::getEntities, new Tools.PropsBuilder()
+                .withProperty(Property.Name.CATEGORY, Tools.PromptFuncDefinition.Property.builder().type("string").description(Property.Description.CATEGORY).required(false).build())
+                .build(), Collections.emptyList()),
             defineVoidFunction(Function.Name.GET_NPC_STATE, Function.Description.GET_NPC_STATE, NPCFunction::getNpcState),
             defineVoidFunction(Function.Name.GET_RECIPES, Function.Description.GET_RECIPES, NPCFunction::getRecipes),
             defineFunction(Function.Name.GET_CONVERSATIONS, Function.Description.GET_CONVERSATIONS, NPCFunction::getConversations, new Tools.PropsBuilder()
@@ -110,13 +127,11 @@ public class OllamaFunctionManager extends AFunctionManager<Tools.ToolSpecificat
 
     @Override
     public void vectorizeFunctions(List<Tools.ToolSpecification> rawFunctions) {
+        Map<String, float[]> embeddings = FunctionEmbeddingRegistry.getEmbeddings(
+                llmClient, rawFunctions.stream().map(Tools.ToolSpecification::getFunctionDescription).toList());
         rawFunctions.forEach(function -> {
-            OllamaFunction vectorizedFunction = new OllamaFunction(
-                    function.getFunctionName(),
-                    function,
-                    llmClient.generateEmbedding(List.of(function.getFunctionDescription()))
-            );
-            addVectorizedFunction(vectorizedFunction);
+            OllamaFunction vectorizedFunction = new OllamaFunction(function.getFunctionName(), function);
+            addVectorizedFunction(vectorizedFunction, embeddings.get(function.getFunctionDescription()));
         });
     }
 
@@ -131,84 +146,129 @@ public class OllamaFunctionManager extends AFunctionManager<Tools.ToolSpecificat
     private static class NPCFunction {
 
         public static String chat(Map<String, Object> arguments) {
+            NPCController controller = controller();
             String message = (String) arguments.get(Property.Name.MESSAGE);
 
-            controller.addAction(() -> controller.chat(message), false);
-            return "chatted message " + message;
+            return awaitResult(controller.addAction(new NPCAction(ActionType.CHAT, "chat message " + message,
+                    () -> controller.chat(message))), "chatting message " + message);
         }
 
         public static String move(Map<String, Object> arguments) {
+            NPCController controller = controller();
             int x = Integer.parseInt((String) arguments.get(Property.Name.X));
             int y = Integer.parseInt((String)arguments.get(Property.Name.Y));
             int z = Integer.parseInt((String)arguments.get(Property.Name.Z));
 
-            controller.addAction(() -> controller.move(new WorldContext.Position(x, y, z)), false);
-            return "moving to " + x + ", " + y + ", " + z;
+            WorldContext.Position position = new WorldContext.Position(x, y, z);
+            return awaitResult(controller.addAction(new NPCAction(ActionType.MOVE, "move to " + x + ", " + y + ", " + z,
+                    () -> controller.move(position), () -> controller.isAt(position))), "moving to " + x + ", " + y + ", " + z);
         }
 
         public static String mine(Map<String, Object> arguments) {
+            NPCController controller = controller();
             int x = Integer.parseInt((String)arguments.get(Property.Name.X));
             int y = Integer.parseInt((String)arguments.get(Property.Name.Y));
             int z = Integer.parseInt((String)arguments.get(Property.Name.Z));
 
-            controller.addAction(() -> controller.mine(new WorldContext.Position(x, y, z)), false);
-            return "mining block at " + x + ", " + y + ", " + z;
+            WorldContext.Position position = new WorldContext.Position(x, y, z);
+            return awaitResult(controller.addAction(new NPCAction(ActionType.MINE, "mine block at " + x + ", " + y + ", " + z,
+                    () -> controller.mine(position), () -> controller.isMined(position))), "mining block at " + x + ", " + y + ", " + z);
+        }
+
+        public static String mineBlocks(Map<String, Object> arguments) {
+            NPCController controller = controller();
+            String blockName = (String) arguments.get(Property.Name.BLOCK_NAME);
+            int count = Integer.parseInt(arguments.get(Property.Name.COUNT).toString());
+
+            MiningJob job = controller.createMiningJob(blockName, count);
+            return awaitResult(controller.addAction(new NPCAction(ActionType.MINE_BLOCKS, "mine " + count + " " + blockName,
+                    job::start, job::isDone).withProgress(job::getProgress)), "mining " + count + " " + blockName);
         }
 
         public static String drop(Map<String, Object> arguments) {
+            NPCController controller = controller();
             int slot = Integer.parseInt((String) arguments.get(Property.Name.SLOT));
 
-            controller.addAction(() -> controller.drop(slot), false);
-            return "drops one item from slot " + slot;
+            return awaitResult(controller.addAction(new NPCAction(ActionType.DROP, "drop one item from slot " + slot,
+                    () -> controller.drop(slot))), "drops one item from slot " + slot);
         }
 
         public static String dropAll(Map<String, Object> arguments) {
+            NPCController controller = controller();
             int slot = Integer.parseInt((String) arguments.get(Property.Name.SLOT));
 
-            controller.addAction(() -> controller.dropAll(slot), false);
-            return "drops all items from slot " + slot;
+            return awaitResult(controller.addAction(new NPCAction(ActionType.DROP_ALL, "drop all items from slot " + slot,
+                    () -> controller.dropAll(slot))), "drops all items from slot " + slot);
         }
 
         public static String attack(Map<String, Object> arguments) {
+            NPCController controller = controller();
             int entityId = Integer.parseInt((String) arguments.get(Property.Name.ENTITY_ID));
 
-            controller.addAction(() -> controller.attack(entityId), false);
-            return "tries to attack the entity " + entityId;
+            return awaitResult(controller.addAction(new NPCAction(ActionType.ATTACK, "attack entity " + entityId,
+                    () -> controller.attack(entityId), () -> true)), "tries to attack the entity " + entityId);
         }
 
         public static String getEntities(Map<String, Object> arguments) {
-            return PromptFormatter.formatEntities(ContextGenerator.scanNearbyEntities(npcEntity));
+            ServerPlayerEntity npcEntity = npcEntity();
+            String category = (String) arguments.get(Property.Name.CATEGORY);
+
+            return ContextDiffer.current().formatEntities(ContextGenerator.scanNearbyEntities(npcEntity, EntityCategory.parse(category)),
+                    ContextGenerator.getPosition(npcEntity));
         }
 
         public static String getBlocks(Map<String, Object> arguments) {
-            return PromptFormatter.formatBlocks(ContextGenerator.scanNearbyBlocks(npcEntity));
+            ServerPlayerEntity npcEntity = npcEntity();
+            return ContextDiffer.current().formatBlocks(ContextGenerator.scanNearbyBlocks(npcEntity), ContextGenerator.getPosition(npcEntity));
+        }
+
+        public static String findBlocks(Map<String, Object> arguments) {
+            ServerPlayerEntity npcEntity = npcEntity();
+            String blockName = (String) arguments.get(Property.Name.BLOCK_NAME);
+            String tool = (String) arguments.get(Property.Name.TOOL);
+            int radius = parseOptionalInt(arguments.get(Property.Name.RADIUS), 0);
+            int maxResults = parseOptionalInt(arguments.get(Property.Name.MAX_RESULTS), DEFAULT_FOUND_BLOCKS);
+
+            return ContextDiffer.current().getFormatter().formatBlocks(
+                    ContextGenerator.findBlocks(npcEntity, blockName, tool, radius, maxResults), ContextGenerator.getPosition(npcEntity));
         }
 
         public static String getNpcState(Map<String, Object> arguments) {
-            return PromptFormatter.formatInventory(ContextGenerator.getInventoryState(npcEntity)) +
-                    PromptFormatter.formatNPCState(ContextGenerator.getNpcState(npcEntity));
+            ServerPlayerEntity npcEntity = npcEntity();
+            ContextDiffer contextDiffer = ContextDiffer.current();
+            return contextDiffer.formatInventory(ContextGenerator.getInventoryState(npcEntity)) +
+                    contextDiffer.formatNpcState(ContextGenerator.getNpcState(npcEntity)) +
+                    formatCurrentAction();
         }
 
         public static String getRecipes(Map<String, Object> arguments) {
             String itemName = (String) arguments.get(Property.Name.ITEM_NAME);
 
-            return PromptFormatter.formatRecipes(resourcesProvider.getRelevantRecipes(itemName));
+            return PromptFormatter.formatRecipes(resourcesProvider().getRelevantRecipes(itemName));
         }
 
         public static String getConversations(Map<String, Object> arguments) {
             String topic = (String) arguments.get(Property.Name.TOPIC);
 
-            return PromptFormatter.formatConversation(resourcesProvider.getRelevantConversations(topic));
+            return PromptFormatter.formatConversation(resourcesProvider().getRelevantConversations(topic));
         }
 
         public static String getLatestConversations(Map<String, Object> arguments) {
-            return history.getFormattedConversation();
+            return history().getFormattedConversation();
         }
 
         public static String stop(Map<String, Object> arguments) {
-            controller.addAction(() -> controller.cancelActions(), true);
+            controller().stopActions();
             return "stop all actions";
         }
+
+        private static int parseOptionalInt(Object argument, int defaultValue) {
+            try {
+                return argument == null ? defaultValue : Integer.parseInt(argument.toString());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
     }
 
 }
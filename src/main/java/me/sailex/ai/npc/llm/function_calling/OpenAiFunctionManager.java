@@ -4,7 +4,12 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import io.github.sashirestela.openai.common.function.FunctionDef;
 import io.github.sashirestela.openai.common.function.Functional;
+import me.sailex.ai.npc.action.ActionType;
+import me.sailex.ai.npc.action.MiningJob;
+import me.sailex.ai.npc.action.NPCAction;
+import me.sailex.ai.npc.context.ContextDiffer;
 import me.sailex.ai.npc.context.ContextGenerator;
+import me.sailex.ai.npc.context.EntityCategory;
 import me.sailex.ai.npc.database.resources.ResourcesProvider;
 import me.sailex.ai.npc.history.ConversationHistory;
 import me.sailex.ai.npc.llm.ILLMClient;
@@ -17,6 +22,7 @@ import me.sailex.ai.npc.util.PromptFormatter;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
@@ -26,7 +32,7 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
             NPCController controller,
             ServerPlayerEntity npcEntity,
             ConversationHistory history,
-            ILLMClient llmClient
+                ILLMClient llmClient
     ) {
         super(resourcesProvider, controller, npcEntity, history, llmClient);
         vectorizeFunctions(createFunctions());
@@ -37,11 +43,14 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
             defineFunction(Function.Name.CHAT, Function.Description.CHAT, Chat.class),
             defineFunction(Function.Name.MOVE, Function.Description.MOVE, Move.class),
             defineFunction(Function.Name.MINE, Function.Description.MINE, Mine.class),
+            defineFunction(Function.Name.MINE_BLOCKS, Function.Description.MINE_BLOCKS, MineBlocks.class),
             defineFunction(Function.Name.DROP, Function.Description.DROP, Drop.class),
             defineFunction(Function.Name.DROP_ALL, Function.Description.DROP_ALL, DropAll.class),
             defineFunction(Function.Name.ATTACK, Function.Description.ATTACK, Attack.class),
-            defineFunction(Function.Name.GET_ENTITIES, Function.Description.GET_ENTITIES, GetEntities.class),
+            //strict mode requires all properties, but the filters of get entities and find blocks are optional
+            defineFunction(Function.Name.GET_ENTITIES, Function.Description.GET_ENTITIES, GetEntities.class, false),
             defineFunction(Function.Name.GET_BLOCKS, Function.Description.GET_BLOCKS, GetBlocks.class),
+            defineFunction(Function.Name.FIND_BLOCKS, Function.Description.FIND_BLOCKS, FindBlocks.class, false),
             defineFunction(Function.Name.GET_NPC_STATE, Function.Description.GET_NPC_STATE, GetNpcState.class),
             defineFunction(Function.Name.GET_RECIPES, Function.Description.GET_RECIPES, GetRecipes.class),
             defineFunction(Function.Name.GET_CONVERSATIONS, Function.Description.GET_CONVERSATIONS, GetConversations.class),
@@ -51,23 +60,28 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
     }
 
     public <T extends Functional> FunctionDef defineFunction(String name, String description, Class<T> clazz) {
+        return defineFunction(name, description, clazz, true);
+    }
+
+    /**
+     * @param strict whether the arguments must match the schema exactly, only possible if all properties are required
+     */
+    public <T extends Functional> FunctionDef defineFunction(String name, String description, Class<T> clazz, boolean strict) {
         return FunctionDef.builder()
                     .name(name)
                     .description(description)
                     .functionalClass(clazz)
-                    .strict(true)
+                    .strict(strict)
                     .build();
     }
 
     @Override
     public void vectorizeFunctions(List<FunctionDef> rawFunctions) {
+        Map<String, float[]> embeddings = FunctionEmbeddingRegistry.getEmbeddings(
+                llmClient, rawFunctions.stream().map(FunctionDef::getDescription).toList());
         rawFunctions.forEach(function -> {
-            OpenAiFunction vectorizedFunction = new OpenAiFunction(
-                    function.getName(),
-                    function,
-                    llmClient.generateEmbedding(List.of(function.getDescription()))
-            );
-            addVectorizedFunction(vectorizedFunction);
+            OpenAiFunction vectorizedFunction = new OpenAiFunction(function.getName(), function);
+            addVectorizedFunction(vectorizedFunction, embeddings.get(function.getDescription()));
         });
     }
 
@@ -87,8 +101,9 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
 
         @Override
         public Object execute() {
-            controller.addAction(() -> controller.chat(message), false);
-            return "chat message " + message;
+            NPCController controller = controller();
+            return awaitResult(controller.addAction(new NPCAction(ActionType.CHAT, "chat message " + message,
+                    () -> controller.chat(message))), "chatting message " + message);
         }
     }
 
@@ -103,8 +118,10 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
 
         @Override
         public Object execute() {
-            controller.addAction(() -> controller.move(new WorldContext.Position(x, y, z)), false);
-            return "moving to " + x + ", " + y + ", " + z;
+            NPCController controller = controller();
+            WorldContext.Position position = new WorldContext.Position(x, y, z);
+            return awaitResult(controller.addAction(new NPCAction(ActionType.MOVE, "move to " + x + ", " + y + ", " + z,
+                    () -> controller.move(position), () -> controller.isAt(position))), "moving to " + x + ", " + y + ", " + z);
         }
     }
 
@@ -119,8 +136,28 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
 
         @Override
         public Object execute() {
-            controller.addAction(() -> controller.mine(new WorldContext.Position(x, y, z)), false);
-            return "mining block at " + x + ", " + y + ", " + z;
+            NPCController controller = controller();
+            WorldContext.Position position = new WorldContext.Position(x, y, z);
+            return awaitResult(controller.addAction(new NPCAction(ActionType.MINE, "mine block at " + x + ", " + y + ", " + z,
+                    () -> controller.mine(position), () -> controller.isMined(position))), "mining block at " + x + ", " + y + ", " + z);
+        }
+    }
+
+    private static class MineBlocks implements Functional {
+
+        @JsonPropertyDescription(Property.Description.MINED_BLOCK_NAME)
+        @JsonProperty(required = true)
+        private String blockName;
+        @JsonPropertyDescription(Property.Description.COUNT)
+        @JsonProperty(required = true)
+        private int count;
+
+        @Override
+        public Object execute() {
+            NPCController controller = controller();
+            MiningJob job = controller.createMiningJob(blockName, count);
+            return awaitResult(controller.addAction(new NPCAction(ActionType.MINE_BLOCKS, "mine " + count + " " + blockName,
+                    job::start, job::isDone).withProgress(job::getProgress)), "mining " + count + " " + blockName);
         }
     }
 
@@ -132,8 +169,9 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
 
         @Override
         public Object execute() {
-            controller.addAction(() -> controller.drop(slot), false);
-            return "drops one item from slot " + slot;
+            NPCController controller = controller();
+            return awaitResult(controller.addAction(new NPCAction(ActionType.DROP, "drop one item from slot " + slot,
+                    () -> controller.drop(slot))), "drops one item from slot " + slot);
         }
     }
 
@@ -145,8 +183,9 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
 
         @Override
         public Object execute() {
-            controller.addAction(() -> controller.dropAll(slot), false);
-            return "drops all items from slot " + slot;
+            NPCController controller = controller();
+            return awaitResult(controller.addAction(new NPCAction(ActionType.DROP_ALL, "drop all items from slot " + slot,
+                    () -> controller.dropAll(slot))), "drops all items from slot " + slot);
         }
     }
 
@@ -158,38 +197,74 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
 
         @Override
         public Object execute() {
-            controller.addAction(() -> controller.attack(entityId), false);
-            return "tries to attack the entity " + entityId;
+            NPCController controller = controller();
+            return awaitResult(controller.addAction(new NPCAction(ActionType.ATTACK, "attack entity " + entityId,
+                    () -> controller.attack(entityId), () -> true)), "tries to attack the entity " + entityId);
         }
     }
 
     private static class Stop implements Functional {
         @Override
         public Object execute() {
-            controller.addAction(() -> controller.cancelActions(), true);
+            controller().stopActions();
             return "stop all actions";
         }
     }
 
     private static class GetEntities implements Functional {
+
+        @JsonPropertyDescription(Property.Description.CATEGORY)
+        @JsonProperty
+        private String category;
+
         @Override
         public Object execute() {
-            return PromptFormatter.formatEntities(ContextGenerator.scanNearbyEntities(npcEntity));
+            ServerPlayerEntity npcEntity = npcEntity();
+            return ContextDiffer.current().formatEntities(ContextGenerator.scanNearbyEntities(npcEntity, EntityCategory.parse(category)),
+                    ContextGenerator.getPosition(npcEntity));
         }
     }
 
     private static class GetBlocks implements Functional {
         @Override
         public Object execute() {
-            return PromptFormatter.formatBlocks(ContextGenerator.scanNearbyBlocks(npcEntity));
+            ServerPlayerEntity npcEntity = npcEntity();
+            return ContextDiffer.current().formatBlocks(ContextGenerator.scanNearbyBlocks(npcEntity), ContextGenerator.getPosition(npcEntity));
+        }
+    }
+
+    private static class FindBlocks implements Functional {
+
+        @JsonPropertyDescription(Property.Description.BLOCK_NAME)
+        @JsonProperty(required = true)
+        private String blockName;
+        @JsonPropertyDescription(Property.Description.TOOL)
+        @JsonProperty
+        private String tool;
+        @JsonPropertyDescription(Property.Description.RADIUS)
+        @JsonProperty
+        private Integer radius;
+        @JsonPropertyDescription(Property.Description.MAX_RESULTS)
+        @JsonProperty
+        private Integer maxResults;
+
+        @Override
+        public Object execute() {
+            ServerPlayerEntity npcEntity = npcEntity();
+            return ContextDiffer.current().getFormatter().formatBlocks(ContextGenerator.findBlocks(npcEntity, blockName, tool,
+                    radius == null ? 0 : radius, maxResults == null ? DEFAULT_FOUND_BLOCKS : maxResults),
+                    ContextGenerator.getPosition(npcEntity));
         }
     }
 
     private static class GetNpcState implements Functional {
         @Override
         public Object execute() {
-            return PromptFormatter.formatInventory(ContextGenerator.getInventoryState(npcEntity)) +
-                    PromptFormatter.formatNPCState(ContextGenerator.getNpcState(npcEntity));
+            ServerPlayerEntity npcEntity = npcEntity();
+            ContextDiffer contextDiffer = ContextDiffer.current();
+            return contextDiffer.formatInventory(ContextGenerator.getInventoryState(npcEntity)) +
+                    contextDiffer.formatNpcState(ContextGenerator.getNpcState(npcEntity)) +
+                    formatCurrentAction();
         }
     }
 
@@ -201,7 +276,7 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
 
         @Override
         public Object execute() {
-            return PromptFormatter.formatRecipes(resourcesProvider.getRelevantRecipes(itemName));
+            return PromptFormatter.formatRecipes(resourcesProvider().getRelevantRecipes(itemName));
         }
     }
 
@@ -213,14 +288,14 @@ public class OpenAiFunctionManager extends AFunctionManager<FunctionDef> {
 
         @Override
         public Object execute() {
-            return PromptFormatter.formatConversation(resourcesProvider.getRelevantConversations(topic));
+            return PromptFormatter.formatConversation(resourcesProvider().getRelevantConversations(topic));
         }
     }
 
     private static class GetLatestConversations implements Functional {
         @Override
         public Object execute() {
-            return history.getFormattedConversation();
+            return history().getFormattedConversation();
         }
     }
 
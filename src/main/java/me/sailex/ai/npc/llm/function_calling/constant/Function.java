@@ -10,11 +10,13 @@ public class Function {
         public static final String CHAT = "chat";
         public static final String MOVE = "move";
         public static final String MINE  = "mine";
+        public static final String MINE_BLOCKS = "mineBlocks";
         public static final String DROP = "drop";
         public static final String DROP_ALL = "dropAll";
         public static final String ATTACK = "attack";
         public static final String GET_ENTITIES = "getEntities";
         public static final String GET_BLOCKS = "getBlocks";
+        public static final String FIND_BLOCKS = "findBlocks";
         public static final String GET_NPC_STATE = "getNpcState";
         public static final String GET_RECIPES = "getRecipes";
         public static final String GET_CONVERSATIONS = "getConversations";
@@ -28,12 +30,14 @@ public class Function {
         public static final String CHAT = "Print answers into game chat so the players can read it.";
         public static final String MOVE = "Move to a location";
         public static final String MINE = "Mine the block at a location";
+        public static final String MINE_BLOCKS = "Mine and collect a number of blocks of a type (e.g. 20 oak_log), the blocks are searched automatically";
         public static final String DROP = "Drop one item of an inventory slot";
         public static final String DROP_ALL = "Drop all items of an inventory slot";
         public static final String ATTACK = "Attack the entity via an entity id";
         public static final String GET_ENTITIES = "Get ids / positions of entities and players next to you";
         public static final String GET_BLOCKS = "Get all blocks next to you";
-        public static final String GET_NPC_STATE = "Get your player state (foodlevel, health, ...) and inventory items mapped to slots";
+        public static final String FIND_BLOCKS = "Find the nearest blocks of a type (e.g. log, iron_ore, crafting_table), optionally within a radius or mineable with a tool";
+        public static final String GET_NPC_STATE = "Get your player state (foodlevel, health, ...), inventory items mapped to slots and the progress of your running action";
         public static final String GET_RECIPES = "Get all recipes that matches the specified item";
         public static final String GET_CONVERSATIONS = "Get a conversation to a specific topic from the past";
         public static final String GET_LATEST_CONVERSATIONS = "Get the last 7 conversations (user prompts and answer of you with the functions that are called)";
@@ -15,6 +15,12 @@ public class Property {
         public static final String ENTITY_ID = "entity_id";
         public static final String TOPIC = "topic";
         public static final String ITEM_NAME = "item_name";
+        public static final String BLOCK_NAME = "block_name";
+        public static final String TOOL = "tool";
+        public static final String RADIUS = "radius";
+        public static final String MAX_RESULTS = "max_results";
+        public static final String CATEGORY = "category";
+        public static final String COUNT = "count";
     }
 
     public static class Description {
@@ -25,6 +31,13 @@ public class Property {
         public static final String ENTITY_ID = "entity id of the Entity that is to be attacked";
         public static final String ITEM_NAME = "item for which a recipe is wanted";
         public static final String TOPIC = "Topic for which old conversations should be searched for";
+        public static final String BLOCK_NAME = "name or part of the name of the searched block type";
+        public static final String TOOL = "only blocks that are mined with this tool (axe, pickaxe, shovel, hoe or hand)";
+        public static final String RADIUS = "maximum distance of the blocks to you";
+        public static final String MAX_RESULTS = "maximum number of returned blocks (default 5)";
+        public static final String MINED_BLOCK_NAME = "exact name of the block type to mine (e.g. oak_log, iron_ore)";
+        public static final String COUNT = "number of blocks to collect";
+        public static final String CATEGORY = "only entities of these comma separated categories (player, hostile, creature, item, other)";
     }
 
 }
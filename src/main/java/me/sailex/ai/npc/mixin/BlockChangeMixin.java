@@ -0,0 +1,19 @@
+package me.sailex.ai.npc.mixin;
+
+import me.sailex.ai.npc.callback.BlockChangeCallback;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ServerWorld.class)
+public abstract class BlockChangeMixin {
+
+	@Inject(at = @At("HEAD"), method = "onBlockChanged")
+	public void onBlockChanged(BlockPos pos, BlockState oldBlock, BlockState newBlock, CallbackInfo info) {
+		BlockChangeCallback.EVENT.invoker().onBlockChange((ServerWorld) (Object) this, pos, oldBlock, newBlock);
+	}
+}
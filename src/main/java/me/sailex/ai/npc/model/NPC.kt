@@ -1,5 +1,6 @@
 package me.sailex.ai.npc.model
 
+import me.sailex.ai.npc.NPCController
 import me.sailex.ai.npc.event.IEventHandler
 import me.sailex.ai.npc.history.ConversationHistory
 import me.sailex.ai.npc.llm.ILLMClient
@@ -9,5 +10,6 @@ data class NPC(
     val entity: ServerPlayerEntity,
     val llmClient: ILLMClient,
     val history: ConversationHistory,
-    val eventHandler: IEventHandler
+    val eventHandler: IEventHandler,
+    val controller: NPCController
 )
@@ -16,9 +16,14 @@ public record WorldContext(
 	public record NPCState(
 			Position position, float health, int food, boolean onGround, boolean inWater, String biome) {}
 
-	public record BlockData(String type, Position position, String mineLevel, String toolNeeded) {}
-
-	public record EntityData(String id, String name, Position position) {}
+	/**
+	 * @param position position of the nearest exposed block of the type
+	 * @param count    number of blocks of the type in the scanned chunk sections, exposed or not.
+	 *                 Whole sections are counted, so it includes blocks up to a section above or below the scan range
+	 */
+	public record BlockData(String type, Position position, String mineLevel, String toolNeeded, int count) {}
+
+	public record EntityData(String id, String name, Position position, String category) {}
 
 	public record ItemData(String type, int count, int damage, int slot) {}
 
@@ -0,0 +1,9 @@
+package me.sailex.ai.npc.model.database
+
+/**
+ * Key of an embedding in the embedding cache
+ */
+data class CachedEmbedding(
+    val model: String,
+    val textHash: String
+) : Resource
@@ -5,6 +5,5 @@ import java.sql.Timestamp
 data class Conversation(
     val npcName: String,
     val message: String,
-    val timestamp: Timestamp,
-    override val embedding: DoubleArray
+    val timestamp: Timestamp
 ) : Resource
@@ -4,6 +4,5 @@ import io.github.ollama4j.tools.Tools
 
 data class OllamaFunction(
     override val name: String,
-    val function: Tools.ToolSpecification,
-    override val embedding: DoubleArray
-): LLMFunction
\ No newline at end of file
+    val function: Tools.ToolSpecification
+): LLMFunction
@@ -4,6 +4,5 @@ import io.github.sashirestela.openai.common.function.FunctionDef
 
 data class OpenAiFunction(
     override val name: String,
-    val function: FunctionDef,
-    override val embedding: DoubleArray
-): LLMFunction
\ No newline at end of file
+    val function: FunctionDef
+): LLMFunction
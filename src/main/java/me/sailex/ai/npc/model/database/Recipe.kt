@@ -1,9 +1,19 @@
 package me.sailex.ai.npc.model.database
 
+import me.sailex.ai.npc.util.HashUtil
+
+/**
+ * @property id identifier of the recipe (namespace:path)
+ */
 data class Recipe(
+    val id: String,
     val name: String,
     val type: String,
     val tableNeeded: String,
-    val itemsNeeded: String,
-    override val embedding: DoubleArray,
-) : Resource
+    val itemsNeeded: String
+) : Resource {
+    /**
+     * Hash of the recipe content, changes if the recipe got changed by a datapack/mod update
+     */
+    val contentHash: String = HashUtil.sha256("$name|$type|$tableNeeded|$itemsNeeded")
+}
@@ -1,5 +1,7 @@
 package me.sailex.ai.npc.model.database
 
-interface Resource {
-    val embedding: DoubleArray
-}
+/**
+ * Resource that can be searched by its embedding.
+ * The embeddings itself are held by [me.sailex.ai.npc.embedding.EmbeddingStore].
+ */
+interface Resource
@@ -0,0 +1,24 @@
+package me.sailex.ai.npc.tick;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Level of detail at which the behaviour of a NPC is ticked, depends on the distance to the closest real player.
+ */
+@Getter
+@AllArgsConstructor
+public enum DetailLevel {
+
+	/** a player is close, the NPC is ticked every tick */
+	FULL(1, true),
+	/** a player is at mid range, the NPC is ticked every few ticks */
+	REDUCED(5, false),
+	/** no player is around, the NPC only processes queued actions once in a while */
+	DORMANT(40, false);
+
+	//ticks between two behaviour ticks of the NPC
+	private final int period;
+	//whether the NPC looks at the closest player
+	private final boolean lookAtPlayer;
+}
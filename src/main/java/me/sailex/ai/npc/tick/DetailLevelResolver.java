@@ -0,0 +1,69 @@
+package me.sailex.ai.npc.tick;
+
+import carpet.patches.EntityPlayerMPFake;
+import me.sailex.ai.npc.config.ModConfig;
+import me.sailex.ai.npc.constant.ConfigConstants;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Resolves the {@link DetailLevel} of a NPC by the distance to the closest real player in its world.
+ * Other NPCs (fake players) and spectators don't count as players.
+ */
+public class DetailLevelResolver {
+
+	private static final Logger LOGGER = LogManager.getLogger(DetailLevelResolver.class);
+	private static final int DEFAULT_FULL_DISTANCE = 32;
+	private static final int DEFAULT_DORMANT_DISTANCE = 128;
+
+	private static double fullDistanceSquared = square(DEFAULT_FULL_DISTANCE);
+	private static double dormantDistanceSquared = square(DEFAULT_DORMANT_DISTANCE);
+
+	private DetailLevelResolver() {}
+
+	/**
+	 * Reads the distances of the detail levels of the config.
+	 */
+	public static void register(ModConfig config) {
+		int fullDistance = parseProperty(config, ConfigConstants.NPC_LOD_FULL_DISTANCE, DEFAULT_FULL_DISTANCE);
+		int dormantDistance = parseProperty(config, ConfigConstants.NPC_LOD_DORMANT_DISTANCE, DEFAULT_DORMANT_DISTANCE);
+		if (dormantDistance < fullDistance) {
+			LOGGER.warn("{} is smaller than {}, using {}",
+					ConfigConstants.NPC_LOD_DORMANT_DISTANCE, ConfigConstants.NPC_LOD_FULL_DISTANCE, fullDistance);
+			dormantDistance = fullDistance;
+		}
+		fullDistanceSquared = square(fullDistance);
+		dormantDistanceSquared = square(dormantDistance);
+	}
+
+	/**
+	 * Must be called on the server thread.
+	 */
+	public static DetailLevel resolve(ServerPlayerEntity npcEntity) {
+		double closestDistance = Double.MAX_VALUE;
+		for (ServerPlayerEntity player : npcEntity.getServerWorld().getPlayers()) {
+			if (player == npcEntity || player instanceof EntityPlayerMPFake || player.isSpectator()) continue;
+			closestDistance = Math.min(closestDistance, player.squaredDistanceTo(npcEntity));
+		}
+		if (closestDistance <= fullDistanceSquared) {
+			return DetailLevel.FULL;
+		} else if (closestDistance <= dormantDistanceSquared) {
+			return DetailLevel.REDUCED;
+		}
+		return DetailLevel.DORMANT;
+	}
+
+	private static int parseProperty(ModConfig config, String key, int defaultValue) {
+		try {
+			return Integer.parseInt(config.getProperty(key));
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Invalid value of {}, using {}", key, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	private static double square(int distance) {
+		return (double) distance * distance;
+	}
+}
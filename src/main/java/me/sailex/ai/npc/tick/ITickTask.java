@@ -0,0 +1,15 @@
+package me.sailex.ai.npc.tick;
+
+import net.minecraft.server.MinecraftServer;
+
+/**
+ * Task that is ticked by the {@link NPCTickScheduler} on the server thread.
+ */
+@FunctionalInterface
+public interface ITickTask {
+
+	/**
+	 * @return false if the task is finished and must not be ticked anymore
+	 */
+	boolean tick(MinecraftServer server);
+}
@@ -0,0 +1,142 @@
+package me.sailex.ai.npc.tick;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticks the tasks of all live NPCs from one server tick listener.
+ * Tasks with a period greater than one are staggered over the ticks, so they don't all run in the same tick.
+ * If the tasks exceed the time budget of a tick, the remaining due tasks run in the next tick.
+ * Tasks are added and removed from any thread, the changes are applied at the beginning of the next tick.
+ */
+public class NPCTickScheduler {
+
+	private static final Logger LOGGER = LogManager.getLogger(NPCTickScheduler.class);
+	private static final long TICK_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	//only accessed on the server thread
+	private static final List<ScheduledTask> TASKS = new ArrayList<>();
+	private static final Queue<ScheduledTask> ADDED_TASKS = new ConcurrentLinkedQueue<>();
+	private static final Queue<ITickTask> REMOVED_TASKS = new ConcurrentLinkedQueue<>();
+	private static int nextPhase;
+	//task that is ticked first, rotates so every task runs within the budget once in a while
+	private static int firstTask;
+
+	private NPCTickScheduler() {}
+
+	/**
+	 * Registers the tick listener of the scheduler.
+	 */
+	public static void register() {
+		ServerTickEvents.END_SERVER_TICK.register(NPCTickScheduler::tick);
+		ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+			TASKS.clear();
+			ADDED_TASKS.clear();
+			REMOVED_TASKS.clear();
+		});
+	}
+
+	/**
+	 * Ticks the task every tick.
+	 */
+	public static void schedule(ITickTask task) {
+		schedule(task, 1);
+	}
+
+	/**
+	 * Ticks the task every period ticks.
+	 */
+	public static void schedule(ITickTask task, int period) {
+		ADDED_TASKS.add(new ScheduledTask(task, Math.max(1, period)));
+	}
+
+	/**
+	 * Stops ticking the task.
+	 */
+	public static void cancel(ITickTask task) {
+		REMOVED_TASKS.add(task);
+	}
+
+	private static void tick(MinecraftServer server) {
+		applyChanges();
+		int size = TASKS.size();
+		if (size == 0) return;
+
+		long deadline = System.nanoTime() + TICK_BUDGET_NANOS;
+		int ticks = server.getTicks();
+		int start = Math.floorMod(firstTask++, size);
+		boolean finishedTasks = false;
+		for (int i = 0; i < size; i++) {
+			ScheduledTask task = TASKS.get((start + i) % size);
+			if (!task.overdue && (ticks + task.phase) % task.period != 0) continue;
+			if (System.nanoTime() > deadline) {
+				task.overdue = true;
+				continue;
+			}
+			task.overdue = false;
+			task.finished = !runTask(task.task, server);
+			finishedTasks |= task.finished;
+		}
+		if (finishedTasks) {
+			removeFinishedTasks();
+		}
+	}
+
+	private static boolean runTask(ITickTask task, MinecraftServer server) {
+		try {
+			return task.tick(server);
+		} catch (Exception e) {
+			LOGGER.error("Error ticking npc task", e);
+			return true;
+		}
+	}
+
+	private static void applyChanges() {
+		ScheduledTask addedTask;
+		while ((addedTask = ADDED_TASKS.poll()) != null) {
+			addedTask.phase = nextPhase++ % addedTask.period;
+			TASKS.add(addedTask);
+		}
+		ITickTask removedTask;
+		while ((removedTask = REMOVED_TASKS.poll()) != null) {
+			for (int i = 0; i < TASKS.size(); i++) {
+				if (TASKS.get(i).task == removedTask) TASKS.get(i).finished = true;
+			}
+			removeFinishedTasks();
+		}
+	}
+
+	private static void removeFinishedTasks() {
+		int kept = 0;
+		for (int i = 0; i < TASKS.size(); i++) {
+			ScheduledTask task = TASKS.get(i);
+			if (!task.finished) TASKS.set(kept++, task);
+		}
+		for (int i = TASKS.size() - 1; i >= kept; i--) {
+			TASKS.remove(i);
+		}
+	}
+
+	private static class ScheduledTask {
+
+		private final ITickTask task;
+		private final int period;
+		private int phase;
+		private boolean overdue;
+		private boolean finished;
+
+		private ScheduledTask(ITickTask task, int period) {
+			this.task = task;
+			this.period = period;
+		}
+	}
+}
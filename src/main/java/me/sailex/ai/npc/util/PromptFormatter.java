@@ -73,16 +73,17 @@ public class PromptFormatter {
 		return formatList(
 				blocks.stream().limit(15).toList(),
 				block -> String.format(
-						"- Block %s is at %s can be mined with tool %s %s",
-						block.type(), formatPosition(block.position()), block.mineLevel(), block.toolNeeded()));
+						"- Block %s (%s in scanned area) is at %s can be mined with tool %s %s",
+						block.type(), block.count(), formatPosition(block.position()), block.mineLevel(), block.toolNeeded()));
 	}
 
 	public static String formatEntities(List<WorldContext.EntityData> entities) {
 		return formatList(
 				entities,
 				entity -> String.format(
-						"- Entity %s with entityId: %s at %s",
+						"- Entity %s (%s) with entityId: %s at %s",
 						entity.name(),
+						entity.category(),
 						entity.id(),
 						formatPosition(entity.position()))
 		);
@@ -1,38 +1,112 @@
 package me.sailex.ai.npc.util;
 
+import me.sailex.ai.npc.embedding.ISimilarityKernel;
+import me.sailex.ai.npc.embedding.SimilarityKernelFactory;
+
 import java.nio.ByteBuffer;
 
 public class VectorUtil {
 
+	private static final ISimilarityKernel KERNEL = SimilarityKernelFactory.create();
+	//"Q8V1", can't be the first bytes of a legacy double blob (would be a double around 1e83)
+	private static final int INT8_MAGIC = 0x51385631;
+	private static final int INT8_HEADER_SIZE = 8;
+	//"F32V", can't be the first bytes of a legacy double blob (would be a double around 1e30)
+	private static final int FLOAT32_MAGIC = 0x46333256;
+	private static final int FLOAT32_HEADER_SIZE = 4;
+
 	private VectorUtil() {}
 
-	public static double cosineSimilarity(double[] vec1, double[] vec2) {
-		if (vec1.length != vec2.length) return 0.0;
-		double dotProduct = 0.0;
-		double norm1 = 0.0;
-		double norm2 = 0.0;
-		for (int i = 0; i < vec1.length; i++) {
-			dotProduct += vec1[i] * vec2[i];
-			norm1 += Math.pow(vec1[i], 2);
-			norm2 += Math.pow(vec2[i], 2);
+	public static float cosineSimilarity(float[] vec1, float[] vec2) {
+		return KERNEL.cosineSimilarity(vec1, vec2);
+	}
+
+	/**
+	 * Dot product of two vectors. Use for vectors that were normalized on insert.
+	 */
+	public static float dotProduct(float[] vec1, int offset1, float[] vec2, int offset2, int length) {
+		return KERNEL.dotProduct(vec1, offset1, vec2, offset2, length);
+	}
+
+	/**
+	 * Normalizes a vector in place to unit length.
+	 *
+	 * @return the given array
+	 */
+	public static float[] normalize(float[] vec, int offset, int length) {
+		float norm = (float) Math.sqrt(dotProduct(vec, offset, vec, offset, length));
+		if (norm == 0f) return vec;
+		for (int i = offset; i < offset + length; i++) {
+			vec[i] /= norm;
+		}
+		return vec;
+	}
+
+	/**
+	 * Quantizes a vector to int8 codes with one symmetric scale (code * scale = value).
+	 *
+	 * @return the scale of the codes
+	 */
+	public static float quantize(float[] vec, int offset, int length, byte[] codes, int codesOffset) {
+		float maxAbs = 0f;
+		for (int i = offset; i < offset + length; i++) {
+			maxAbs = Math.max(maxAbs, Math.abs(vec[i]));
+		}
+		float scale = maxAbs == 0f ? 1f : maxAbs / Byte.MAX_VALUE;
+		for (int i = 0; i < length; i++) {
+			codes[codesOffset + i] = (byte) Math.round(vec[offset + i] / scale);
 		}
-		return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+		return scale;
+	}
+
+	/**
+	 * Dot product of two int8 code vectors, multiply with both scales to get the float dot product.
+	 */
+	public static int dotProduct(byte[] codes1, int offset1, byte[] codes2, int offset2, int length) {
+		return KERNEL.dotProduct(codes1, offset1, codes2, offset2, length);
 	}
 
-	public static double[] convertToDoubles(byte[] bytes) {
-		if (bytes == null) return new double[] {};
-		double[] embedding = new double[bytes.length / 8];
+	/**
+	 * Dot product of a float vector and int8 codes, multiply with the scale of the codes to get the dot product.
+	 */
+	public static float dotProduct(float[] vec, int offset, byte[] codes, int codesOffset, int length) {
+		return KERNEL.dotProduct(vec, offset, codes, codesOffset, length);
+	}
+
+	/**
+	 * Decodes an embedding blob. Supports the float32 format, the int8 format and the legacy format of 8-byte doubles.
+	 */
+	public static float[] convertToFloats(byte[] bytes) {
+		if (bytes == null || bytes.length == 0) return new float[] {};
 		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (bytes.length >= FLOAT32_HEADER_SIZE && buffer.getInt(0) == FLOAT32_MAGIC) {
+			float[] embedding = new float[(bytes.length - FLOAT32_HEADER_SIZE) / 4];
+			buffer.position(FLOAT32_HEADER_SIZE).asFloatBuffer().get(embedding);
+			return embedding;
+		}
+		if (bytes.length >= INT8_HEADER_SIZE && buffer.getInt(0) == INT8_MAGIC) {
+			float scale = buffer.getFloat(4);
+			float[] embedding = new float[bytes.length - INT8_HEADER_SIZE];
+			for (int i = 0; i < embedding.length; i++) {
+				embedding[i] = bytes[INT8_HEADER_SIZE + i] * scale;
+			}
+			return embedding;
+		}
+		float[] embedding = new float[bytes.length / 8];
 		for (int i = 0; i < embedding.length; i++) {
-			embedding[i] = buffer.getDouble();
+			embedding[i] = (float) buffer.getDouble();
 		}
 		return embedding;
 	}
 
-	public static byte[] convertToBytes(double[] embedding) {
+	/**
+	 * Encodes an embedding as float32 blob: magic and four bytes per dimension.
+	 * The full precision is kept, the stores rescore their search results on it.
+	 */
+	public static byte[] convertToBytes(float[] embedding) {
 		if (embedding.length == 0) return new byte[] {};
-		ByteBuffer buffer = ByteBuffer.allocate(embedding.length * 8);
-		buffer.asDoubleBuffer().put(embedding);
+		ByteBuffer buffer = ByteBuffer.allocate(FLOAT32_HEADER_SIZE + embedding.length * 4).putInt(FLOAT32_MAGIC);
+		buffer.asFloatBuffer().put(embedding);
 		return buffer.array();
 	}
 }